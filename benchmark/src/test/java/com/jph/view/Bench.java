@@ -0,0 +1,160 @@
+package com.jph.view;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * 微基准测试的计时与内存分配统计
+ *
+ * <p>
+ * Runs an operation in warmed up rounds on the calling thread and prints the
+ * median time and the bytes allocated per operation, the same numbers JMH
+ * reports as {@code ns/op} and {@code gc.alloc.rate.norm}. Every operation is
+ * timed on its own so its untimed {@link Op#setUp()} can restart a gesture or
+ * an animation without showing up in the result. Allocation is read from the
+ * HotSpot per thread counter, no agent is needed. {@link #retained} reports
+ * the heap a structure keeps, measured between full collections.
+ *
+ * <p>
+ * The numbers include Robolectric's shadows, they are for comparing two
+ * versions of the library on the same machine, not for device budgets.
+ *
+ * @author JPH
+ */
+final class Bench {
+	private final static int WARMUP_ROUNDS = 5;
+	private final static int ROUNDS = 10;
+
+	/**
+	 * One benchmarked operation.
+	 */
+	static abstract class Op {
+		/**
+		 * Untimed, called before every {@link #run()}.
+		 */
+		void setUp() {
+		}
+
+		abstract void run();
+	}
+
+	/**
+	 * What one benchmark measured.
+	 */
+	static final class Result {
+		final String name;
+		final double nanosPerOp;
+		final double bytesPerOp;
+
+		Result(String name, double nanosPerOp, double bytesPerOp) {
+			this.name = name;
+			this.nanosPerOp = nanosPerOp;
+			this.bytesPerOp = bytesPerOp;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-48s %12.0f ns/op %10.0f B/op", name,
+					nanosPerOp, bytesPerOp);
+		}
+	}
+
+	/**
+	 * Builds the structure whose heap use is measured.
+	 */
+	static abstract class Heap {
+		abstract Object build();
+	}
+
+	private final static com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	// keeps the measured structure reachable through the collections
+	private static Object sRetained;
+
+	private Bench() {
+	}
+
+	/**
+	 * Measure and print {@code op}.
+	 *
+	 * @param operations
+	 *            per round, enough for a round to take some milliseconds
+	 */
+	static Result run(String name, int operations, Op op) {
+		if (!THREADS.isThreadAllocatedMemoryEnabled()) {
+			THREADS.setThreadAllocatedMemoryEnabled(true);
+		}
+		long thread = Thread.currentThread().getId();
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			round(op, operations, thread, null);
+		}
+		double[] nanos = new double[ROUNDS];
+		double[] bytes = new double[ROUNDS];
+		long[] round = new long[2];
+		for (int i = 0; i < ROUNDS; i++) {
+			round(op, operations, thread, round);
+			nanos[i] = (double) round[0] / operations;
+			bytes[i] = (double) round[1] / operations;
+		}
+		Result result = new Result(name, median(nanos), median(bytes));
+		System.out.println(result);
+		return result;
+	}
+
+	/**
+	 * Measure and print the heap retained by what {@code heap} builds,
+	 * between two full collections.
+	 *
+	 * @param items
+	 *            in the structure, to print the bytes per item
+	 * @return the retained bytes
+	 */
+	static long retained(String name, int items, Heap heap) {
+		long before = usedAfterGc();
+		sRetained = heap.build();
+		long bytes = usedAfterGc() - before;
+		sRetained = null;
+		System.out.println(String.format("%-48s %12d B %10.1f B/item", name,
+				bytes, (double) bytes / items));
+		return bytes;
+	}
+
+	private static long usedAfterGc() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		// until a collection frees nothing more
+		for (int i = 0; i < 10; i++) {
+			System.gc();
+			System.runFinalization();
+			long now = runtime.totalMemory() - runtime.freeMemory();
+			if (now >= used)
+				return now;
+			used = now;
+		}
+		return used;
+	}
+
+	private static void round(Op op, int operations, long thread, long[] out) {
+		long nanos = 0;
+		long bytes = 0;
+		for (int i = 0; i < operations; i++) {
+			op.setUp();
+			long allocated = THREADS.getThreadAllocatedBytes(thread);
+			long start = System.nanoTime();
+			op.run();
+			nanos += System.nanoTime() - start;
+			bytes += THREADS.getThreadAllocatedBytes(thread) - allocated;
+		}
+		if (out != null) {
+			out[0] = nanos;
+			out[1] = bytes;
+		}
+	}
+
+	private static double median(double[] values) {
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+}
@@ -0,0 +1,135 @@
+package com.jph.view;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+/**
+ * CompactItemStore与ArrayList的内存对比
+ *
+ * <p>
+ * Prints the heap retained by {@link CompactItemStore} and by the
+ * {@code ArrayList} of id and text items it replaces, for texts that are all
+ * different and for texts that repeat, and the cost of appending an item.
+ *
+ * @author JPH
+ */
+public class CompactItemStoreBenchmark {
+	private final static int ITEMS = 200000;
+	// e.g. a status or category column
+	private final static int REPEATED_TEXTS = 100;
+
+	/**
+	 * The row model of the sample app.
+	 */
+	static class Item {
+		final long id;
+		final String text;
+
+		Item(long id, String text) {
+			this.id = id;
+			this.text = text;
+		}
+	}
+
+	@Test
+	public void distinctTexts() {
+		Bench.retained("ArrayList<Item>, distinct texts", ITEMS,
+				new Bench.Heap() {
+					@Override
+					Object build() {
+						return buildList(0);
+					}
+				});
+		Bench.retained("CompactItemStore, distinct texts", ITEMS,
+				new Bench.Heap() {
+					@Override
+					Object build() {
+						return buildStore(0);
+					}
+				});
+	}
+
+	@Test
+	public void repeatedTexts() {
+		Bench.retained("ArrayList<Item>, repeated texts", ITEMS,
+				new Bench.Heap() {
+					@Override
+					Object build() {
+						return buildList(REPEATED_TEXTS);
+					}
+				});
+		Bench.retained("CompactItemStore, repeated texts", ITEMS,
+				new Bench.Heap() {
+					@Override
+					Object build() {
+						return buildStore(REPEATED_TEXTS);
+					}
+				});
+	}
+
+	@Test
+	public void add() {
+		final StringBuilder text = new StringBuilder();
+		final CompactItemStore store = new CompactItemStore();
+		Bench.run("CompactItemStore.add", 10000, new Bench.Op() {
+			private long mId;
+
+			@Override
+			void setUp() {
+				if (store.size() == ITEMS) {
+					store.clear();
+				}
+				setText(text, mId, 0);
+			}
+
+			@Override
+			void run() {
+				store.add(mId++, text);
+			}
+		});
+	}
+
+	/**
+	 * @param texts
+	 *            distinct texts to cycle through, 0 for all different
+	 */
+	private static ArrayList<Item> buildList(int texts) {
+		ArrayList<Item> items = new ArrayList<Item>();
+		// a list of texts that repeat shares the String objects, like one
+		// parsed from a response with interned values would.
+		String[] shared = new String[texts];
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < ITEMS; i++) {
+			String value;
+			if (texts == 0) {
+				value = setText(text, i, 0).toString();
+			} else {
+				int index = i % texts;
+				if (shared[index] == null) {
+					shared[index] = setText(text, i, texts).toString();
+				}
+				value = shared[index];
+			}
+			items.add(new Item(i, value));
+		}
+		return items;
+	}
+
+	private static CompactItemStore buildStore(int texts) {
+		CompactItemStore store = new CompactItemStore();
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < ITEMS; i++) {
+			store.add(i, setText(text, i, texts));
+		}
+		return store;
+	}
+
+	// the row text of the sample app
+	private static StringBuilder setText(StringBuilder text, long id,
+			int texts) {
+		text.setLength(0);
+		return text.append("当前条目的ID：").append(
+				texts == 0 ? id : id % texts);
+	}
+}
@@ -0,0 +1,105 @@
+package com.jph.view;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * 丢弃绘制内容的Canvas
+ *
+ * <p>
+ * Robolectric's canvas records every primitive as text, which would make
+ * text heavy views look slow. This one drops the primitives so a draw
+ * benchmark measures the view code that issues them; save, clip and
+ * translate still go to the real canvas.
+ *
+ * @author JPH
+ */
+class DiscardingCanvas extends Canvas {
+
+	DiscardingCanvas(Bitmap bitmap) {
+		super(bitmap);
+	}
+
+	@Override
+	public void drawText(char[] text, int index, int count, float x,
+			float y, Paint paint) {
+	}
+
+	@Override
+	public void drawText(String text, float x, float y, Paint paint) {
+	}
+
+	@Override
+	public void drawText(String text, int start, int end, float x, float y,
+			Paint paint) {
+	}
+
+	@Override
+	public void drawText(CharSequence text, int start, int end, float x,
+			float y, Paint paint) {
+	}
+
+	@Override
+	public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+	}
+
+	@Override
+	public void drawBitmap(Bitmap bitmap, Rect src, Rect dst, Paint paint) {
+	}
+
+	@Override
+	public void drawBitmap(Bitmap bitmap, Rect src, RectF dst, Paint paint) {
+	}
+
+	@Override
+	public void drawBitmap(Bitmap bitmap, Matrix matrix, Paint paint) {
+	}
+
+	@Override
+	public void drawArc(RectF oval, float startAngle, float sweepAngle,
+			boolean useCenter, Paint paint) {
+	}
+
+	@Override
+	public void drawCircle(float cx, float cy, float radius, Paint paint) {
+	}
+
+	@Override
+	public void drawLine(float startX, float startY, float stopX,
+			float stopY, Paint paint) {
+	}
+
+	@Override
+	public void drawPath(Path path, Paint paint) {
+	}
+
+	@Override
+	public void drawRect(float left, float top, float right, float bottom,
+			Paint paint) {
+	}
+
+	@Override
+	public void drawRect(Rect r, Paint paint) {
+	}
+
+	@Override
+	public void drawRect(RectF rect, Paint paint) {
+	}
+
+	@Override
+	public void drawRoundRect(RectF rect, float rx, float ry, Paint paint) {
+	}
+
+	@Override
+	public void drawColor(int color) {
+	}
+
+	@Override
+	public void drawPaint(Paint paint) {
+	}
+}
@@ -0,0 +1,87 @@
+package com.jph.view;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.jph.lp.R;
+
+/**
+ * 无布局下拉的布局次数
+ *
+ * <p>
+ * A layout free pull must not lay the list out while the finger moves, and
+ * lays it out once when the header settles.
+ *
+ * @author JPH
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LayoutFreePullTest {
+	private final static float PULL_FROM = 100;
+	private final static float PULL_STEP = 10;
+
+	@Test
+	public void refreshPullLaysOutOnceOnSettle() {
+		ListFixture fixture = new ListFixture(100);
+		fixture.list.setLayoutFreePullEnable(true);
+
+		// far enough for the header to turn ready and start a refresh
+		int layouts = fixture.getLayoutCount();
+		drag(fixture, 400);
+		assertEquals("layouts during the drag", 0, fixture.getLayoutCount()
+				- layouts);
+		// laid out in place to be drawn into the gap
+		View content = fixture.list
+				.findViewById(R.id.listview_plus_header_content);
+		assertTrue(content.getHeight() > 0);
+
+		layouts = fixture.getLayoutCount();
+		fixture.touch(MotionEvent.ACTION_UP, 400);
+		fixture.frame();
+		fixture.settle();
+		assertEquals("layouts on settle", 1, fixture.getLayoutCount()
+				- layouts);
+	}
+
+	@Test
+	public void dismissedPullDoesNotLayOut() {
+		ListFixture fixture = new ListFixture(100);
+		fixture.list.setLayoutFreePullEnable(true);
+
+		int layouts = fixture.getLayoutCount();
+		drag(fixture, 150);
+		fixture.touch(MotionEvent.ACTION_UP, 150);
+		fixture.frame();
+		fixture.settle();
+		// the header goes back to 0, there is no height to commit
+		assertEquals(0, fixture.getLayoutCount() - layouts);
+	}
+
+	@Test
+	public void cancelledPullSpringsBackWithoutRefresh() {
+		ListFixture fixture = new ListFixture(100);
+
+		// past the threshold, then a parent takes the gesture
+		drag(fixture, 400);
+		fixture.touch(MotionEvent.ACTION_CANCEL, 400);
+		fixture.frame();
+		fixture.settle();
+		assertEquals("refresh token", 0, fixture.list.getRefreshToken());
+		View header = fixture.list.findViewById(R.id.listview_plus_header_content);
+		assertEquals(0, ((View) header.getParent()).getHeight());
+	}
+
+	private static void drag(ListFixture fixture, float toY) {
+		fixture.touch(MotionEvent.ACTION_DOWN, PULL_FROM);
+		for (float y = PULL_FROM + PULL_STEP; y <= toY; y += PULL_STEP) {
+			fixture.touch(MotionEvent.ACTION_MOVE, y);
+			fixture.frame();
+		}
+	}
+}
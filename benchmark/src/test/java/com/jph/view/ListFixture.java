@@ -0,0 +1,149 @@
+package com.jph.view;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.robolectric.Robolectric;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowChoreographer;
+import org.robolectric.util.Scheduler;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View.MeasureSpec;
+import android.widget.ArrayAdapter;
+
+/**
+ * 基准测试和测试使用的ListViewPlus
+ *
+ * <p>
+ * A ListViewPlus over simple text rows with the fixture standing in for the
+ * view root: {@link #frame()} lays the list out if it asked for it and
+ * draws it, {@link #touch(int, float)} feeds it synthetic events and
+ * {@link #animationFrame()} runs the next posted frame callback, e.g. a step
+ * of the scroll back spring.
+ *
+ * @author JPH
+ */
+class ListFixture {
+	final static int WIDTH = 480;
+	final static int HEIGHT = 800;
+	// between touch samples and between animation frames
+	final static long FRAME_MILLIS = 16;
+
+	final Context context;
+	final ListViewPlus list;
+	final List<String> items;
+
+	private final Canvas mCanvas;
+	private final Scheduler mScheduler;
+	private long mDownTime;
+	private long mEventTime;
+	private int mLayouts;
+
+	ListFixture(int rows) {
+		context = RuntimeEnvironment.application;
+		list = new ListViewPlus(context);
+		items = new ArrayList<String>(rows);
+		for (int i = 0; i < rows; i++) {
+			items.add("Item " + i);
+		}
+		list.setRefreshEnable(true);
+		list.setLoadEnable(true);
+		list.setAdapter(new ArrayAdapter<String>(context,
+				android.R.layout.simple_list_item_1, items));
+		mCanvas = new DiscardingCanvas(Bitmap.createBitmap(WIDTH, HEIGHT,
+				Bitmap.Config.ARGB_8888));
+		// queue posts and frame callbacks instead of running them at once,
+		// a frame apart like on a 60Hz display.
+		mScheduler = Robolectric.getForegroundThreadScheduler();
+		mScheduler.pause();
+		ShadowChoreographer.setFrameInterval(FRAME_MILLIS * 1000000L);
+		ShadowChoreographer.setPostFrameCallbackDelay((int) FRAME_MILLIS);
+		mEventTime = SystemClock.uptimeMillis();
+		frame();
+	}
+
+	/**
+	 * Do what the view root does on a frame.
+	 *
+	 * @return true if the list was laid out
+	 */
+	boolean frame() {
+		boolean layout = list.isLayoutRequested();
+		if (layout) {
+			list.measure(
+					MeasureSpec.makeMeasureSpec(WIDTH, MeasureSpec.EXACTLY),
+					MeasureSpec.makeMeasureSpec(HEIGHT, MeasureSpec.EXACTLY));
+			list.layout(0, 0, WIDTH, HEIGHT);
+			mLayouts++;
+		}
+		RealDraw.draw(list, mCanvas);
+		return layout;
+	}
+
+	/**
+	 * @return the layout passes run by {@link #frame()} so far
+	 */
+	int getLayoutCount() {
+		return mLayouts;
+	}
+
+	/**
+	 * Send one touch event to {@link ListViewPlus#onTouchEvent}, one frame
+	 * after the previous one.
+	 */
+	void touch(int action, float y) {
+		mEventTime += FRAME_MILLIS;
+		if (action == MotionEvent.ACTION_DOWN) {
+			mDownTime = mEventTime;
+		}
+		MotionEvent ev = MotionEvent.obtain(mDownTime, mEventTime, action,
+				WIDTH / 2, y, 0);
+		list.onTouchEvent(ev);
+		ev.recycle();
+	}
+
+	/**
+	 * Pull from {@code fromY} to {@code toY} in steps of {@code step} pixels
+	 * and let go, running a frame after every move.
+	 */
+	void pull(float fromY, float toY, float step) {
+		touch(MotionEvent.ACTION_DOWN, fromY);
+		for (float y = fromY + step; y <= toY; y += step) {
+			touch(MotionEvent.ACTION_MOVE, y);
+			frame();
+		}
+		touch(MotionEvent.ACTION_UP, toY);
+		frame();
+	}
+
+	/**
+	 * Run the next posted callback and a frame after it.
+	 *
+	 * @return false if nothing was posted, e.g. the spring is at rest
+	 */
+	boolean animationFrame() {
+		if (mScheduler.size() == 0)
+			return false;
+		mScheduler.runOneTask();
+		frame();
+		return true;
+	}
+
+	/**
+	 * Run animation frames until nothing is posted any more.
+	 *
+	 * @return the frames run
+	 */
+	int settle() {
+		int frames = 0;
+		while (animationFrame()) {
+			frames++;
+		}
+		return frames;
+	}
+}
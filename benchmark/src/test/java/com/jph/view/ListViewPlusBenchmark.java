@@ -0,0 +1,129 @@
+package com.jph.view;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import android.view.MotionEvent;
+
+/**
+ * ListViewPlus热点路径的基准测试
+ *
+ * <p>
+ * Drives the pull gesture, onScroll, the scroll back spring and the footer
+ * collapse with synthetic events and prints ns/op and B/op for each. Run it
+ * with {@code gradle :benchmark:benchmark}; the regular test task skips it.
+ *
+ * @author JPH
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ListViewPlusBenchmark {
+	private final static int ROWS = 100;
+	// pulls the header about 50px, short of a refresh
+	private final static float PULL_FROM = 100;
+	private final static float PULL_TO = 190;
+	private final static float PULL_STEP = 10;
+
+	@Test
+	public void pullMove() {
+		benchmarkPullMove("onTouchEvent pull move, layout", false);
+		benchmarkPullMove("onTouchEvent pull move, layout free", true);
+	}
+
+	private void benchmarkPullMove(String name, boolean layoutFree) {
+		final ListFixture fixture = new ListFixture(ROWS);
+		fixture.list.setLayoutFreePullEnable(layoutFree);
+		// one move and the frame it causes, a gesture is restarted once the
+		// header has been pulled to PULL_TO.
+		Bench.run(name, 200, new Bench.Op() {
+			private float mY = PULL_TO;
+
+			@Override
+			void setUp() {
+				if (mY < PULL_TO)
+					return;
+				fixture.touch(MotionEvent.ACTION_UP, mY);
+				fixture.settle();
+				fixture.touch(MotionEvent.ACTION_DOWN, PULL_FROM);
+				mY = PULL_FROM;
+			}
+
+			@Override
+			void run() {
+				mY += PULL_STEP;
+				fixture.touch(MotionEvent.ACTION_MOVE, mY);
+				fixture.frame();
+			}
+		});
+	}
+
+	@Test
+	public void springFrame() {
+		benchmarkSpringFrame("spring frame, layout", false);
+		benchmarkSpringFrame("spring frame, layout free", true);
+	}
+
+	private void benchmarkSpringFrame(String name, boolean layoutFree) {
+		final ListFixture fixture = new ListFixture(ROWS);
+		fixture.list.setLayoutFreePullEnable(layoutFree);
+		// one step of the scroll back after a release, the former
+		// computeScroll path.
+		Bench.run(name, 200, new Bench.Op() {
+			private boolean mSettled = true;
+
+			@Override
+			void setUp() {
+				if (mSettled) {
+					fixture.pull(PULL_FROM, PULL_TO, PULL_STEP);
+					mSettled = false;
+				}
+			}
+
+			@Override
+			void run() {
+				mSettled = !fixture.animationFrame();
+			}
+		});
+	}
+
+	@Test
+	public void onScroll() {
+		final ListFixture fixture = new ListFixture(ROWS);
+		final ListViewPlus list = fixture.list;
+		final int visible = list.getChildCount();
+		final int total = list.getCount();
+		final int last = total - visible;
+		// the callback as AbsListView sends it during a slow scroll down
+		Bench.run("onScroll", 10000, new Bench.Op() {
+			private int mFirst;
+
+			@Override
+			void run() {
+				list.onScroll(list, mFirst, visible, total);
+				if (++mFirst > last) {
+					mFirst = 0;
+				}
+			}
+		});
+	}
+
+	@Test
+	public void footerToggle() {
+		final ListFixture fixture = new ListFixture(ROWS);
+		final ListViewPlus list = fixture.list;
+		final int visible = list.getChildCount();
+		final int total = list.getCount();
+		// crossing the minimum item count collapses or shows the footer
+		list.setMinItemCount(ROWS);
+		Bench.run("onScroll footer collapse and show", 200, new Bench.Op() {
+			private boolean mShown = true;
+
+			@Override
+			void run() {
+				mShown = !mShown;
+				list.onScroll(list, 0, visible, mShown ? total : total - 1);
+				fixture.frame();
+			}
+		});
+	}
+}
@@ -0,0 +1,135 @@
+package com.jph.view;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.TextView;
+
+import com.jph.view.ListViewPlus.OnLoadPreviousListener;
+
+/**
+ * 加载更早内容时的重新绑定
+ *
+ * <p>
+ * Items put in front by a load previous shift the rows on screen; the
+ * rows must keep their views and must not be bound again.
+ *
+ * @author JPH
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LoadPreviousTest {
+	private final static int PREPENDED = 20;
+	private final static int ROW_HEIGHT = 40;
+
+	/**
+	 * Text rows keyed by their text, counting the binds.
+	 */
+	static class CountingAdapter extends
+			ListViewPlusAdapter<String, ListViewPlusAdapter.ViewHolder> {
+		int binds;
+
+		CountingAdapter(ListFixture fixture, List<String> items) {
+			super(fixture.context, items);
+		}
+
+		@Override
+		protected ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+			TextView view = new TextView(parent.getContext());
+			view.setLayoutParams(new AbsListView.LayoutParams(
+					AbsListView.LayoutParams.MATCH_PARENT, ROW_HEIGHT));
+			return new ViewHolder(view);
+		}
+
+		@Override
+		protected void onBindViewHolder(ViewHolder holder, String item,
+				int position) {
+			((TextView) holder.itemView).setText(item);
+			binds++;
+		}
+
+		@Override
+		public long getItemKey(String item) {
+			return item.hashCode();
+		}
+	}
+
+	@Test
+	public void prependKeepsRowsBound() {
+		final ListFixture fixture = new ListFixture(100);
+		final List<String> items = new ArrayList<String>(fixture.items);
+		final CountingAdapter adapter = new CountingAdapter(fixture, items);
+		final List<String> shown = new ArrayList<String>();
+		final int[] anchorTop = new int[1];
+		ListViewPlus list = fixture.list;
+		list.setAdapter(adapter);
+		// pulling the header loads previous when it doesn't refresh
+		list.setRefreshEnable(false);
+		list.setLoadPreviousEnable(true);
+		list.setOnLoadPreviousListener(new OnLoadPreviousListener() {
+			@Override
+			public void onLoadPrevious() {
+				List<String> older = new ArrayList<String>();
+				for (int i = 0; i < PREPENDED; i++) {
+					older.add("Older " + i);
+				}
+				recordShown(fixture.list, shown);
+				anchorTop[0] = topOf(fixture.list, shown.get(0));
+				items.addAll(0, older);
+				adapter.notifyItemsPrepended(older.size());
+				fixture.list.stopLoadPrevious(
+						fixture.list.getLoadPreviousToken(), older.size());
+			}
+		});
+		fixture.frame();
+
+		int binds = adapter.binds;
+		fixture.pull(100, 400, 10);
+		fixture.settle();
+		assertTrue("load previous ran", !shown.isEmpty());
+		// older rows fill the space of the pulled header above the old ones
+		List<String> after = new ArrayList<String>();
+		recordShown(list, after);
+		int newRows = 0;
+		for (int i = 0, n = after.size(); i < n; i++) {
+			if (!shown.contains(after.get(i))) {
+				newRows++;
+			}
+		}
+		assertTrue(newRows < shown.size());
+		assertEquals("binds on prepend", newRows, adapter.binds - binds);
+		// the row that was on top stays where it was
+		assertEquals(anchorTop[0], topOf(list, shown.get(0)));
+	}
+
+	private static void recordShown(ListViewPlus list, List<String> shown) {
+		int first = list.getFirstVisiblePosition();
+		for (int i = 0, n = list.getChildCount(); i < n; i++) {
+			int position = first + i - list.getHeaderViewsCount();
+			View child = list.getChildAt(i);
+			if (position >= 0 && child.getBottom() > 0
+					&& child instanceof TextView) {
+				shown.add(((TextView) child).getText().toString());
+			}
+		}
+	}
+
+	private static int topOf(ListViewPlus list, String item) {
+		for (int i = 0, n = list.getChildCount(); i < n; i++) {
+			View child = list.getChildAt(i);
+			if (child instanceof TextView
+					&& item.equals(((TextView) child).getText().toString()))
+				return child.getTop();
+		}
+		return -1;
+	}
+}
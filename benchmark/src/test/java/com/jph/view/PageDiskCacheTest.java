@@ -0,0 +1,55 @@
+package com.jph.view;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jph.view.PagedDataSource.Page;
+
+/**
+ * 磁盘缓存的大小限制
+ *
+ * <p>
+ * Trimming the cache to its size limit must count and delete its own page
+ * files only, whatever else lives in the directory.
+ *
+ * @author JPH
+ */
+public class PageDiskCacheTest {
+	@Rule
+	public TemporaryFolder mFolder = new TemporaryFolder();
+
+	@Test
+	public void trimLeavesOtherFilesAlone() throws IOException {
+		File dir = mFolder.getRoot();
+		// bigger than the limit on its own
+		File other = new File(dir, "other.bin");
+		FileOutputStream out = new FileOutputStream(other);
+		out.write(new byte[4096]);
+		out.close();
+		other.setLastModified(0);
+
+		PageDiskCache<String, String> cache = new PageDiskCache<String, String>(
+				dir, 1024, Long.MAX_VALUE, PageDiskCache.STRING,
+				PageDiskCache.STRING);
+		List<String> items = new ArrayList<String>();
+		items.add("item");
+		cache.put("list", 0, new Page<String, String>(items, "next"));
+		cache.put("list", 1, new Page<String, String>(items, null));
+
+		assertTrue(other.exists());
+		assertEquals(4096, other.length());
+		assertNotNull(cache.get("list", 0));
+		assertNotNull(cache.get("list", 1));
+	}
+}
@@ -0,0 +1,132 @@
+package com.jph.view;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.widget.TextView;
+
+import com.jph.lp.R;
+
+/**
+ * 绘制的指示器与布局文件头部的对比
+ *
+ * <p>
+ * Measures, lays out and draws {@link FlatPullIndicator} and the inflated
+ * header layout the way a pull does it: resized to the pulled height on
+ * every move, and with the hint text and arrow changing when the header
+ * turns ready. Also creates each of them once per operation.
+ *
+ * @author JPH
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PullIndicatorBenchmark {
+	private final static int WIDTH = ListFixture.WIDTH;
+	private final static int MAX_HEIGHT = 200;
+	private final static int STEP = 5;
+	private final static String TIME = "5分钟前";
+
+	private final Context mContext = RuntimeEnvironment.application;
+	private final Canvas mCanvas = new DiscardingCanvas(Bitmap.createBitmap(
+			WIDTH, MAX_HEIGHT, Bitmap.Config.ARGB_8888));
+
+	@Test
+	public void pullMove() {
+		FlatPullIndicator indicator = new FlatPullIndicator(mContext, true);
+		indicator.setTimeText(TIME);
+		benchmarkResize("FlatPullIndicator pull move", indicator);
+		benchmarkResize("inflated header pull move", inflateHeader());
+	}
+
+	private void benchmarkResize(String name, final View view) {
+		Bench.run(name, 1000, new Bench.Op() {
+			private int mHeight;
+
+			@Override
+			void run() {
+				mHeight = mHeight + STEP > MAX_HEIGHT ? STEP : mHeight + STEP;
+				// the height change of a move, see setVisibleHeight
+				view.requestLayout();
+				frame(view, mHeight);
+			}
+		});
+	}
+
+	@Test
+	public void stateChange() {
+		final FlatPullIndicator indicator = new FlatPullIndicator(mContext,
+				true);
+		indicator.setTimeText(TIME);
+		Bench.run("FlatPullIndicator ready and back", 1000, new Bench.Op() {
+			private int mState;
+
+			@Override
+			void run() {
+				mState = mState == PullIndicator.STATE_READY ? PullIndicator.STATE_NORMAL
+						: PullIndicator.STATE_READY;
+				indicator.setState(mState);
+				frame(indicator, MAX_HEIGHT);
+			}
+		});
+
+		final View header = inflateHeader();
+		final TextView hint = (TextView) header
+				.findViewById(R.id.listview_plus_header_hint_textview);
+		// what ListViewPlusHeader.setState does, the arrow rotation aside
+		Bench.run("inflated header ready and back", 1000, new Bench.Op() {
+			private boolean mReady;
+
+			@Override
+			void run() {
+				mReady = !mReady;
+				hint.setText(mReady ? R.string.listview_plus_header_hint_ready
+						: R.string.listview_plus_header_hint_normal);
+				frame(header, MAX_HEIGHT);
+			}
+		});
+	}
+
+	@Test
+	public void create() {
+		Bench.run("FlatPullIndicator create", 200, new Bench.Op() {
+			@Override
+			void run() {
+				new FlatPullIndicator(mContext, true).setTimeText(TIME);
+			}
+		});
+		Bench.run("inflated header create", 200, new Bench.Op() {
+			@Override
+			void run() {
+				inflateHeader();
+			}
+		});
+	}
+
+	private View inflateHeader() {
+		View header = LayoutInflater.from(mContext).inflate(
+				R.layout.listview_plus_header, null);
+		((TextView) header.findViewById(R.id.listview_plus_header_time))
+				.setText(TIME);
+		return header;
+	}
+
+	/**
+	 * Measure and lay out at the height if asked to, and draw.
+	 */
+	private void frame(View view, int height) {
+		if (view.isLayoutRequested()) {
+			view.measure(
+					MeasureSpec.makeMeasureSpec(WIDTH, MeasureSpec.EXACTLY),
+					MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+			view.layout(0, 0, WIDTH, height);
+		}
+		RealDraw.draw(view, mCanvas);
+	}
+}
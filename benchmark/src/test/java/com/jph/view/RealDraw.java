@@ -0,0 +1,46 @@
+package com.jph.view;
+
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.util.ReflectionHelpers.ClassParameter;
+
+import android.graphics.Canvas;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * 执行真实的View绘制
+ *
+ * <p>
+ * Robolectric's shadow of {@link View#draw(Canvas)} only draws the
+ * background, so neither onDraw nor dispatchDraw would run. This calls the
+ * framework's draw on a view and then on each visible child, translated and
+ * clipped the way the parent's drawChild would do it. A child drawn by its
+ * parent's own code at some other offset, like the pulled header content, is
+ * drawn at its layout position instead; the cost is the same.
+ *
+ * @author JPH
+ */
+final class RealDraw {
+
+	private RealDraw() {
+	}
+
+	static void draw(View view, Canvas canvas) {
+		Shadow.directlyOn(view, View.class, "draw",
+				ClassParameter.from(Canvas.class, canvas));
+		if (!(view instanceof ViewGroup))
+			return;
+		ViewGroup group = (ViewGroup) view;
+		for (int i = 0, count = group.getChildCount(); i < count; i++) {
+			View child = group.getChildAt(i);
+			if (child.getVisibility() != View.VISIBLE)
+				continue;
+			int saveCount = canvas.save();
+			canvas.translate(child.getLeft() - group.getScrollX(),
+					child.getTop() - group.getScrollY());
+			canvas.clipRect(0, 0, child.getWidth(), child.getHeight());
+			draw(child, canvas);
+			canvas.restoreToCount(saveCount);
+		}
+	}
+}
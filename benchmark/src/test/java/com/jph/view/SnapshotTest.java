@@ -0,0 +1,109 @@
+package com.jph.view;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.TextView;
+
+/**
+ * 差量刷新时的重新绑定
+ *
+ * <p>
+ * A snapshot that inserts a row and changes another must bind only those
+ * two, and keep the row on top where it was.
+ *
+ * @author JPH
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SnapshotTest {
+	private final static int ROW_HEIGHT = 40;
+
+	/**
+	 * Rows of "key:content" texts, counting the binds.
+	 */
+	static class CountingAdapter extends
+			ListViewPlusAdapter<String, ListViewPlusAdapter.ViewHolder> {
+		int binds;
+
+		CountingAdapter(ListFixture fixture, List<String> items) {
+			super(fixture.context, items);
+		}
+
+		@Override
+		protected ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+			TextView view = new TextView(parent.getContext());
+			view.setLayoutParams(new AbsListView.LayoutParams(
+					AbsListView.LayoutParams.MATCH_PARENT, ROW_HEIGHT));
+			return new ViewHolder(view);
+		}
+
+		@Override
+		protected void onBindViewHolder(ViewHolder holder, String item,
+				int position) {
+			((TextView) holder.itemView).setText(item);
+			binds++;
+		}
+
+		@Override
+		public long getItemKey(String item) {
+			return Long.parseLong(item.substring(0, item.indexOf(':')));
+		}
+	}
+
+	@Test
+	public void insertBindsOnlyNewAndChangedRows() {
+		ListFixture fixture = new ListFixture(0);
+		ListViewPlus list = fixture.list;
+		// diff on the calling thread, the result is posted
+		list.setPool(new ListViewPlusPool(fixture.context, new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				command.run();
+			}
+		}));
+		List<String> items = new ArrayList<String>();
+		for (int i = 0; i < 100; i++) {
+			items.add(i + ":a");
+		}
+		CountingAdapter adapter = new CountingAdapter(fixture,
+				new ArrayList<String>(items));
+		list.setAdapter(adapter);
+		fixture.frame();
+		// scrolled a bit, the header row is off screen
+		list.setSelectionFromTop(list.getHeaderViewsCount() + 10, -15);
+		fixture.frame();
+		int anchorTop = topOf(list, "10:a");
+
+		items.add(12, "1000:a");
+		items.set(items.indexOf("14:a"), "14:b");
+		int binds = adapter.binds;
+		list.submitSnapshot(items);
+		fixture.settle();
+		assertEquals("binds", 2, adapter.binds - binds);
+		assertEquals(anchorTop, topOf(list, "10:a"));
+		int inserted = topOf(list, "1000:a");
+		assertTrue(inserted > topOf(list, "11:a")
+				&& inserted < topOf(list, "12:a"));
+	}
+
+	private static int topOf(ListViewPlus list, String item) {
+		for (int i = 0, n = list.getChildCount(); i < n; i++) {
+			View child = list.getChildAt(i);
+			if (child instanceof TextView
+					&& item.equals(((TextView) child).getText().toString()))
+				return child.getTop();
+		}
+		return Integer.MIN_VALUE;
+	}
+}
@@ -0,0 +1,53 @@
+package com.jph.view;
+
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import android.content.Context;
+
+/**
+ * ListViewPlus的创建耗时
+ *
+ * <p>
+ * Creates a ListViewPlus as the constructor does it now, with the header and
+ * footer content built on first use, and with both built up front like the
+ * constructor used to. Load more is left off so the footer stays unbuilt in
+ * the lazy case.
+ *
+ * @author JPH
+ */
+@RunWith(RobolectricTestRunner.class)
+public class StartupBenchmark {
+	private final Context mContext = RuntimeEnvironment.application;
+
+	@Test
+	public void create() throws Exception {
+		final Method ensureHeaderContent = ListViewPlus.class
+				.getDeclaredMethod("ensureHeaderContent");
+		ensureHeaderContent.setAccessible(true);
+
+		Bench.run("new ListViewPlus, lazy content", 200, new Bench.Op() {
+			@Override
+			void run() {
+				new ListViewPlus(mContext);
+			}
+		});
+		Bench.run("new ListViewPlus, content built up front", 200,
+				new Bench.Op() {
+					@Override
+					void run() {
+						ListViewPlus list = new ListViewPlus(mContext);
+						try {
+							ensureHeaderContent.invoke(list);
+						} catch (Exception e) {
+							throw new AssertionError(e);
+						}
+						list.setLoadEnable(true);
+					}
+				});
+	}
+}
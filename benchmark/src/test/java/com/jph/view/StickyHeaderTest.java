@@ -0,0 +1,167 @@
+package com.jph.view;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import android.app.Activity;
+import android.database.DataSetObserver;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+/**
+ * 分组索引的更新与观察者的注册
+ *
+ * <p>
+ * A change that keeps the first and last item must still rebuild the
+ * section index, and the list must stop observing the adapter while it is
+ * detached.
+ *
+ * @author JPH
+ */
+@RunWith(RobolectricTestRunner.class)
+public class StickyHeaderTest {
+
+	/**
+	 * Items grouped by their first letter, counting the sticky header's
+	 * observers.
+	 */
+	static class LetterAdapter extends BaseAdapter implements
+			StickyHeaderAdapter {
+		final List<String> items = new ArrayList<String>();
+		int observers;
+
+		@Override
+		public int getCount() {
+			return items.size();
+		}
+
+		@Override
+		public Object getItem(int position) {
+			return items.get(position);
+		}
+
+		@Override
+		public long getItemId(int position) {
+			return items.get(position).hashCode();
+		}
+
+		@Override
+		public boolean hasStableIds() {
+			return true;
+		}
+
+		@Override
+		public View getView(int position, View convertView, ViewGroup parent) {
+			TextView view = convertView != null ? (TextView) convertView
+					: new TextView(parent.getContext());
+			view.setText(items.get(position));
+			return view;
+		}
+
+		@Override
+		public boolean isSectionStart(int position) {
+			return items.get(position).charAt(0) != items.get(position - 1)
+					.charAt(0);
+		}
+
+		@Override
+		public View getHeaderView(int sectionStart, View convertView,
+				ViewGroup parent) {
+			return getView(sectionStart, convertView, parent);
+		}
+
+		@Override
+		public void registerDataSetObserver(DataSetObserver observer) {
+			super.registerDataSetObserver(observer);
+			if (observer.getClass().getEnclosingClass() == StickyHeader.class) {
+				observers++;
+			}
+		}
+
+		@Override
+		public void unregisterDataSetObserver(DataSetObserver observer) {
+			super.unregisterDataSetObserver(observer);
+			if (observer.getClass().getEnclosingClass() == StickyHeader.class) {
+				observers--;
+			}
+		}
+	}
+
+	@Test
+	public void changeInTheMiddleRebuildsIndex() {
+		ListViewPlus list = new ListViewPlus(RuntimeEnvironment.application);
+		LetterAdapter adapter = new LetterAdapter();
+		adapter.items.addAll(Arrays.asList("a1", "a2", "b1", "c1"));
+		list.setAdapter(adapter);
+		list.setStickyHeaderEnable(true);
+		assertEquals(3, list.getSectionIndex().getSectionCount());
+
+		// grown, with the first and the last indexed item where they were,
+		// and a new section in between
+		adapter.items.set(1, "x1");
+		adapter.items.add("c2");
+		adapter.notifyDataSetChanged();
+		SectionIndex index = list.getSectionIndex();
+		assertEquals(4, index.getSectionCount());
+		assertEquals(1, index.getSectionStart(1));
+	}
+
+	@Test
+	public void announcedAppendKeepsIndex() {
+		ListViewPlus list = new ListViewPlus(RuntimeEnvironment.application);
+		LetterAdapter adapter = new LetterAdapter();
+		adapter.items.addAll(Arrays.asList("a1", "b1"));
+		list.setAdapter(adapter);
+		list.setStickyHeaderEnable(true);
+
+		list.setAppendCount(2);
+		adapter.items.addAll(Arrays.asList("b2", "c1"));
+		adapter.notifyDataSetChanged();
+		list.setAppendCount(0);
+		assertEquals(3, list.getSectionIndex().getSectionCount());
+
+		// not announced: the index is built again
+		adapter.items.set(1, "a2");
+		adapter.notifyDataSetChanged();
+		assertEquals(2, list.getSectionIndex().getSectionStart(1));
+	}
+
+	@Test
+	public void detachedListStopsObserving() {
+		Activity activity = Robolectric.setupActivity(Activity.class);
+		FrameLayout root = new FrameLayout(activity);
+		activity.setContentView(root);
+		ListViewPlus list = new ListViewPlus(activity);
+		LetterAdapter adapter = new LetterAdapter();
+		adapter.items.addAll(Arrays.asList("a1", "b1"));
+		list.setAdapter(adapter);
+		list.setStickyHeaderEnable(true);
+		root.addView(list);
+		assertEquals(1, adapter.observers);
+
+		root.removeView(list);
+		assertEquals(0, adapter.observers);
+
+		// changed while detached, seen again on attach
+		adapter.items.add("c1");
+		adapter.notifyDataSetChanged();
+		root.addView(list);
+		assertEquals(1, adapter.observers);
+		assertEquals(3, list.getSectionIndex().getSectionCount());
+
+		list.setStickyHeaderEnable(false);
+		assertEquals(0, adapter.observers);
+	}
+}
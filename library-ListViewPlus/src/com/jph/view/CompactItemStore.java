@@ -0,0 +1,247 @@
+package com.jph.view;
+
+/**
+ * 紧凑的条目存储，适合数十万条的大列表
+ *
+ * <p>
+ * Item ids live in a {@code long[]} and item texts in one shared
+ * {@code char[]} pool where equal texts are stored once. Nothing is
+ * allocated per item; an adapter over the store reads the id and text of a
+ * position when it binds that row. A row can show its text without any
+ * copy through {@link #getChars()}, {@link #getTextStart(int)} and
+ * {@link #getTextLength(int)}, e.g. with
+ * {@code TextView.setText(char[], int, int)}: the pool is append only until
+ * {@link #clear()}, so an array handed out stays valid after it has been
+ * grown.
+ *
+ * @author JPH
+ */
+public class CompactItemStore {
+	private final static int INITIAL_CAPACITY = 64;
+	private final static int EMPTY = -1;
+
+	// per item
+	private long[] mIds;
+	private int[] mTextRefs;
+	private int mSize;
+
+	// per distinct text
+	private int[] mTextStarts;
+	private int[] mTextLengths;
+	private int[] mTextHashes;
+	private int mTextCount;
+	private char[] mChars;
+	private int mCharCount;
+
+	// open addressing table from text hash to distinct text index
+	private int[] mTable;
+
+	public CompactItemStore() {
+		this(INITIAL_CAPACITY);
+	}
+
+	public CompactItemStore(int capacity) {
+		capacity = Math.max(capacity, 1);
+		mIds = new long[capacity];
+		mTextRefs = new int[capacity];
+		mTextStarts = new int[capacity];
+		mTextLengths = new int[capacity];
+		mTextHashes = new int[capacity];
+		mChars = new char[capacity * 16];
+		mTable = newTable(tableSizeFor(capacity));
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	/**
+	 * @return the number of distinct texts in the pool
+	 */
+	public int getDistinctTextCount() {
+		return mTextCount;
+	}
+
+	/**
+	 * Append an item.
+	 *
+	 * @return its position
+	 */
+	public int add(long id, CharSequence text) {
+		if (mSize == mIds.length) {
+			int capacity = mSize * 2;
+			mIds = grow(mIds, capacity);
+			mTextRefs = grow(mTextRefs, capacity);
+		}
+		mIds[mSize] = id;
+		mTextRefs[mSize] = intern(text);
+		return mSize++;
+	}
+
+	public long getId(int position) {
+		checkPosition(position);
+		return mIds[position];
+	}
+
+	/**
+	 * A linear scan, O(n) in the number of items: there is no id index, it
+	 * would cost more than the ids themselves. Don't call it per bound row
+	 * on a large store; keep a map of the ids that need a lookup instead.
+	 *
+	 * @return the position of the first item with this id, or -1
+	 */
+	public int indexOfId(long id) {
+		for (int i = 0; i < mSize; i++) {
+			if (mIds[i] == id)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * The text pool. Use with {@link #getTextStart(int)} and
+	 * {@link #getTextLength(int)}.
+	 */
+	public char[] getChars() {
+		return mChars;
+	}
+
+	public int getTextStart(int position) {
+		checkPosition(position);
+		return mTextStarts[mTextRefs[position]];
+	}
+
+	public int getTextLength(int position) {
+		checkPosition(position);
+		return mTextLengths[mTextRefs[position]];
+	}
+
+	/**
+	 * Materialise the text of one item. Allocates, only use it for rows that
+	 * are being bound.
+	 */
+	public String getText(int position) {
+		checkPosition(position);
+		int ref = mTextRefs[position];
+		return new String(mChars, mTextStarts[ref], mTextLengths[ref]);
+	}
+
+	public void clear() {
+		mSize = 0;
+		mTextCount = 0;
+		mCharCount = 0;
+		for (int i = 0; i < mTable.length; i++) {
+			mTable[i] = EMPTY;
+		}
+	}
+
+	private int intern(CharSequence text) {
+		int length = text.length();
+		int hash = hash(text, length);
+		int mask = mTable.length - 1;
+		int slot = hash & mask;
+		while (mTable[slot] != EMPTY) {
+			int ref = mTable[slot];
+			if (mTextHashes[ref] == hash && contentEquals(ref, text, length))
+				return ref;
+			slot = (slot + 1) & mask;
+		}
+
+		if (mTextCount == mTextStarts.length) {
+			int capacity = mTextCount * 2;
+			mTextStarts = grow(mTextStarts, capacity);
+			mTextLengths = grow(mTextLengths, capacity);
+			mTextHashes = grow(mTextHashes, capacity);
+		}
+		if (mCharCount + length > mChars.length) {
+			char[] chars = new char[Math.max(mChars.length * 2, mCharCount
+					+ length)];
+			System.arraycopy(mChars, 0, chars, 0, mCharCount);
+			mChars = chars;
+		}
+		for (int i = 0; i < length; i++) {
+			mChars[mCharCount + i] = text.charAt(i);
+		}
+
+		int ref = mTextCount++;
+		mTextStarts[ref] = mCharCount;
+		mTextLengths[ref] = length;
+		mTextHashes[ref] = hash;
+		mCharCount += length;
+		mTable[slot] = ref;
+
+		// keep the table at most half full
+		if (mTextCount * 2 > mTable.length) {
+			rehash(mTable.length * 2);
+		}
+		return ref;
+	}
+
+	private boolean contentEquals(int ref, CharSequence text, int length) {
+		if (mTextLengths[ref] != length)
+			return false;
+		int start = mTextStarts[ref];
+		for (int i = 0; i < length; i++) {
+			if (mChars[start + i] != text.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	private void rehash(int size) {
+		int[] table = newTable(size);
+		int mask = size - 1;
+		for (int ref = 0; ref < mTextCount; ref++) {
+			int slot = mTextHashes[ref] & mask;
+			while (table[slot] != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = ref;
+		}
+		mTable = table;
+	}
+
+	private void checkPosition(int position) {
+		if (position < 0 || position >= mSize) {
+			throw new IndexOutOfBoundsException("position " + position
+					+ ", size " + mSize);
+		}
+	}
+
+	private static int hash(CharSequence text, int length) {
+		int h = 0;
+		for (int i = 0; i < length; i++) {
+			h = 31 * h + text.charAt(i);
+		}
+		// spread the bits, the table is indexed by the low ones
+		return h ^ (h >>> 16);
+	}
+
+	private static int tableSizeFor(int capacity) {
+		int size = 16;
+		while (size < capacity * 2) {
+			size <<= 1;
+		}
+		return size;
+	}
+
+	private static int[] newTable(int size) {
+		int[] table = new int[size];
+		for (int i = 0; i < size; i++) {
+			table[i] = EMPTY;
+		}
+		return table;
+	}
+
+	private static long[] grow(long[] array, int capacity) {
+		long[] grown = new long[capacity];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	private static int[] grow(int[] array, int capacity) {
+		int[] grown = new int[capacity];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+}
@@ -0,0 +1,25 @@
+package com.jph.view;
+
+import android.view.View;
+import android.widget.ListAdapter;
+
+/**
+ * 快速滑动时先做轻量绑定、停下后再完整绑定的Adapter
+ *
+ * <p>
+ * In {@code getView} check {@link ListViewPlus#isFastScrolling()} (the
+ * parent passed in is the list) and, while it is true, bind only what is
+ * cheap and remember that the row is a placeholder. Once the scroll slows
+ * down or stops, ListViewPlus calls {@code getView} again with the same row
+ * for every visible placeholder, so it gets its full bind without a
+ * {@code notifyDataSetChanged()}.
+ *
+ * @author JPH
+ */
+public interface DeferredBindAdapter extends ListAdapter {
+	/**
+	 * @return true if the row was bound as a placeholder and still needs a
+	 *         full bind
+	 */
+	public boolean isPlaceholder(View view);
+}
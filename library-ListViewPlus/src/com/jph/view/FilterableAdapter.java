@@ -0,0 +1,20 @@
+package com.jph.view;
+
+import android.widget.ListAdapter;
+
+/**
+ * 可以过滤条目的Adapter
+ *
+ * <p>
+ * While {@link #isFiltering()} is true the adapter shows the items matching
+ * a query instead of the loaded list, so ListViewPlus hides the footer and
+ * doesn't load more or load previous: new pages would land in the loaded
+ * list, not in what is shown. Loads that were already running complete
+ * normally, and the adapter filters their items too. See
+ * {@link ListViewPlusAdapter#filter(CharSequence)}.
+ *
+ * @author JPH
+ */
+public interface FilterableAdapter extends ListAdapter {
+	public boolean isFiltering();
+}
@@ -0,0 +1,326 @@
+package com.jph.view;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.view.View;
+import android.view.animation.AnimationUtils;
+
+import com.jph.lp.R;
+
+/**
+ * 直接在Canvas上绘制的头部/脚部指示器
+ *
+ * <p>
+ * One view draws the arrow, the spinner and the texts itself instead of an
+ * inflated tree of an ImageView, a ProgressBar and TextViews, so a pull
+ * changes the height of a single view and nothing is measured again. The
+ * hint texts are measured once, the time text only when it changes, and
+ * drawing allocates nothing.
+ *
+ * @author JPH
+ */
+public class FlatPullIndicator extends View implements PullIndicator {
+	private final static int HEADER_HEIGHT_DP = 60;
+	private final static int FOOTER_PADDING_DP = 10;
+	private final static int ARROW_SIZE_DP = 16;
+	private final static int ICON_MARGIN_DP = 35;
+	private final static int HINT_TEXT_SP = 15;
+	private final static int TIME_TEXT_SP = 12;
+	private final static long ROTATE_DURATION = 180;
+	private final static long SPIN_PERIOD = 1000;
+	private final static int DEFAULT_COLOR = 0xff333333;
+
+	/**
+	 * The paints, texts and shapes of an indicator. They don't change with
+	 * the state, so one style can be shared by the indicators of several
+	 * lists, see {@link ListViewPlusPool}. Main thread only.
+	 */
+	public static class Style {
+		final boolean mHeader;
+		final int mContentHeight;
+		final float mDensity;
+
+		final Paint mHintPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+		final Paint mTimePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+		final Paint mIconPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+		// hint text and its width for every state, null if none
+		final String[] mHints = new String[3];
+		final float[] mHintWidths = new float[3];
+		final String mTimeLabel;
+		final float mTimeLabelWidth;
+
+		final Path mArrow = new Path();
+		final RectF mSpinnerBounds = new RectF();
+		final float mIconSize;
+
+		/**
+		 * @param header
+		 *            true for the header style, with arrow and refresh time,
+		 *            false for the footer style
+		 */
+		public Style(Context context, boolean header) {
+			mHeader = header;
+			Resources res = context.getResources();
+			mDensity = res.getDisplayMetrics().density;
+			float scaledDensity = res.getDisplayMetrics().scaledDensity;
+
+			mHintPaint.setTextSize(HINT_TEXT_SP * scaledDensity);
+			mTimePaint.setTextSize(TIME_TEXT_SP * scaledDensity);
+			mIconPaint.setStyle(Paint.Style.STROKE);
+			mIconPaint.setStrokeWidth(2 * mDensity);
+			mIconPaint.setStrokeCap(Paint.Cap.ROUND);
+			setColor(DEFAULT_COLOR);
+
+			if (header) {
+				mHints[STATE_NORMAL] = res
+						.getString(R.string.listview_plus_header_hint_normal);
+				mHints[STATE_READY] = res
+						.getString(R.string.listview_plus_header_hint_ready);
+				mHints[STATE_LOADING] = res
+						.getString(R.string.listview_plus_header_hint_loading);
+				mTimeLabel = res
+						.getString(R.string.listview_plus_header_last_time);
+				mContentHeight = (int) (HEADER_HEIGHT_DP * mDensity + 0.5f);
+			} else {
+				mHints[STATE_NORMAL] = res
+						.getString(R.string.listview_plus_footer_hint_normal);
+				mHints[STATE_READY] = res
+						.getString(R.string.listview_plus_footer_hint_ready);
+				mTimeLabel = "";
+				Paint.FontMetrics fm = mHintPaint.getFontMetrics();
+				mContentHeight = (int) (fm.descent - fm.ascent + 2
+						* FOOTER_PADDING_DP * mDensity + 0.5f);
+			}
+			for (int i = 0; i < mHints.length; i++) {
+				if (mHints[i] != null) {
+					mHintWidths[i] = mHintPaint.measureText(mHints[i]);
+				}
+			}
+			mTimeLabelWidth = mTimePaint.measureText(mTimeLabel);
+
+			mIconSize = ARROW_SIZE_DP * mDensity;
+			// an arrow pointing down, centred on the origin
+			float half = mIconSize / 2;
+			mArrow.moveTo(0, -half);
+			mArrow.lineTo(0, half);
+			mArrow.moveTo(-half / 2, half / 2);
+			mArrow.lineTo(0, half);
+			mArrow.lineTo(half / 2, half / 2);
+			mSpinnerBounds.set(-half, -half, half, half);
+		}
+
+		/**
+		 * Set the color of the texts, the arrow and the spinner. Indicators
+		 * already shown pick it up when they are drawn next.
+		 */
+		public void setColor(int color) {
+			mHintPaint.setColor(color);
+			mTimePaint.setColor(color);
+			mIconPaint.setColor(color);
+		}
+	}
+
+	private final Style mStyle;
+	private final boolean mHeader;
+	private final int mContentHeight;
+	private final float mDensity;
+
+	private final char[] mTime = new char[48];
+	private int mTimeLength;
+	private float mTimeWidth;
+
+	private int mState = STATE_NORMAL;
+	// arrow rotation, animated from one angle to the other
+	private float mArrowFrom;
+	private float mArrowTo;
+	private long mArrowStart;
+
+	/**
+	 * @param header
+	 *            true for the header indicator, with arrow and refresh time,
+	 *            false for the footer indicator
+	 */
+	public FlatPullIndicator(Context context, boolean header) {
+		this(context, new Style(context, header));
+	}
+
+	/**
+	 * An indicator drawn with a style that may be shared with other
+	 * indicators.
+	 */
+	public FlatPullIndicator(Context context, Style style) {
+		super(context);
+		mStyle = style;
+		mHeader = style.mHeader;
+		mContentHeight = style.mContentHeight;
+		mDensity = style.mDensity;
+	}
+
+	public Style getStyle() {
+		return mStyle;
+	}
+
+	/**
+	 * Set the color of the texts, the arrow and the spinner. A shared style
+	 * changes for every indicator using it.
+	 */
+	public void setColor(int color) {
+		mStyle.setColor(color);
+		invalidate();
+	}
+
+	@Override
+	public View getView() {
+		return this;
+	}
+
+	@Override
+	public int getContentHeight() {
+		return mContentHeight;
+	}
+
+	@Override
+	public void setState(int state) {
+		if (state == mState)
+			return;
+		if (mHeader && state != STATE_LOADING) {
+			// the arrow turns up when ready, and back down otherwise.
+			float to = state == STATE_READY ? 180 : 0;
+			if (mState == STATE_LOADING) {
+				mArrowFrom = mArrowTo = to;
+			} else {
+				mArrowFrom = getArrowAngle(AnimationUtils
+						.currentAnimationTimeMillis());
+				mArrowTo = to;
+				mArrowStart = AnimationUtils.currentAnimationTimeMillis();
+			}
+		}
+		mState = state;
+		invalidate();
+	}
+
+	@Override
+	public void setTimeText(CharSequence text) {
+		int length = Math.min(text.length(), mTime.length);
+		for (int i = 0; i < length; i++) {
+			mTime[i] = text.charAt(i);
+		}
+		onTimeChanged(length);
+	}
+
+	@Override
+	public void setTimeText(char[] text, int start, int length) {
+		length = Math.min(length, mTime.length);
+		System.arraycopy(text, start, mTime, 0, length);
+		onTimeChanged(length);
+	}
+
+	private void onTimeChanged(int length) {
+		mTimeLength = length;
+		mTimeWidth = mStyle.mTimePaint.measureText(mTime, 0, length);
+		invalidate();
+	}
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		setMeasuredDimension(
+				getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+				resolveSize(mContentHeight, heightMeasureSpec));
+	}
+
+	@Override
+	protected void onDraw(Canvas canvas) {
+		// the content sticks to the bottom while the header grows
+		int saveCount = canvas.save();
+		canvas.translate(0, getHeight() - mContentHeight);
+		if (mHeader) {
+			drawHeader(canvas);
+		} else {
+			drawFooter(canvas);
+		}
+		canvas.restoreToCount(saveCount);
+	}
+
+	private void drawHeader(Canvas canvas) {
+		Style style = mStyle;
+		Paint hintPaint = style.mHintPaint;
+		Paint timePaint = style.mTimePaint;
+		float centerX = getWidth() / 2f;
+		float centerY = mContentHeight / 2f;
+		float hintHeight = hintPaint.descent() - hintPaint.ascent();
+		float timeHeight = timePaint.descent() - timePaint.ascent();
+		boolean showTime = mTimeLength > 0;
+		float blockHeight = showTime ? hintHeight + 3 * mDensity + timeHeight
+				: hintHeight;
+		float top = centerY - blockHeight / 2;
+
+		float hintWidth = style.mHintWidths[mState];
+		canvas.drawText(style.mHints[mState], centerX - hintWidth / 2, top
+				- hintPaint.ascent(), hintPaint);
+		float blockWidth = hintWidth;
+		if (showTime) {
+			float timeLineWidth = style.mTimeLabelWidth + mTimeWidth;
+			float x = centerX - timeLineWidth / 2;
+			float y = top + hintHeight + 3 * mDensity - timePaint.ascent();
+			canvas.drawText(style.mTimeLabel, x, y, timePaint);
+			canvas.drawText(mTime, 0, mTimeLength, x + style.mTimeLabelWidth,
+					y, timePaint);
+			blockWidth = Math.max(blockWidth, timeLineWidth);
+		}
+
+		// the icon sits left of the text block, as in the inflated header
+		float iconX = centerX - blockWidth / 2 - ICON_MARGIN_DP * mDensity
+				+ style.mIconSize / 2;
+		canvas.save();
+		canvas.translate(iconX, centerY);
+		if (mState == STATE_LOADING) {
+			drawSpinner(canvas);
+		} else {
+			long now = AnimationUtils.currentAnimationTimeMillis();
+			canvas.rotate(getArrowAngle(now));
+			canvas.drawPath(style.mArrow, style.mIconPaint);
+			if (now - mArrowStart < ROTATE_DURATION) {
+				invalidate();
+			}
+		}
+		canvas.restore();
+	}
+
+	private void drawFooter(Canvas canvas) {
+		float centerX = getWidth() / 2f;
+		float centerY = mContentHeight / 2f;
+		if (mState == STATE_LOADING) {
+			canvas.save();
+			canvas.translate(centerX, centerY);
+			drawSpinner(canvas);
+			canvas.restore();
+			return;
+		}
+		Paint hintPaint = mStyle.mHintPaint;
+		canvas.drawText(mStyle.mHints[mState], centerX
+				- mStyle.mHintWidths[mState] / 2, centerY
+				- (hintPaint.ascent() + hintPaint.descent()) / 2, hintPaint);
+	}
+
+	private void drawSpinner(Canvas canvas) {
+		long now = AnimationUtils.currentAnimationTimeMillis();
+		float start = (now % SPIN_PERIOD) * 360f / SPIN_PERIOD;
+		canvas.drawArc(mStyle.mSpinnerBounds, start, 270, false,
+				mStyle.mIconPaint);
+		// keep spinning while shown
+		invalidate();
+	}
+
+	private float getArrowAngle(long now) {
+		long elapsed = now - mArrowStart;
+		if (elapsed >= ROTATE_DURATION)
+			return mArrowTo;
+		return mArrowFrom + (mArrowTo - mArrowFrom) * elapsed
+				/ ROTATE_DURATION;
+	}
+}
@@ -1,31 +1,37 @@
 package com.jph.view;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Executor;
 
 import android.annotation.TargetApi;
 import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Canvas;
 import android.os.Build;
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
-import android.view.ViewTreeObserver;
-import android.view.ViewTreeObserver.OnGlobalLayoutListener;
+import android.view.ViewGroup;
 import android.view.animation.Animation;
-import android.view.animation.DecelerateInterpolator;
 import android.view.animation.RotateAnimation;
 import android.widget.AbsListView;
 import android.widget.AbsListView.OnScrollListener;
+import android.widget.AdapterView;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.ListAdapter;
 import android.widget.ListView;
 import android.widget.ProgressBar;
-import android.widget.RelativeLayout;
-import android.widget.Scroller;
 import android.widget.TextView;
 
 import com.jph.lp.R;
@@ -41,10 +47,10 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 	public static final int REFRESH = 0;
 	public static final int LOAD = 1;
 
-	private final static int SCROLL_BACK_HEADER = 0;
-	private final static int SCROLL_BACK_FOOTER = 1;
-
-	private final static int SCROLL_DURATION = 400;
+	/** 滑动速度的分级，见{@link #getScrollSpeed()} **/
+	public static final int SCROLL_SPEED_IDLE = 0;
+	public static final int SCROLL_SPEED_SLOW = 1;
+	public static final int SCROLL_SPEED_FAST = 2;
 
 	// when pull up >= 50px
 	private final static int PULL_LOAD_MORE_DELTA = 50;
@@ -52,39 +58,149 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 	// support iOS like pull
 	private final static float OFFSET_RADIO = 1.8f;
 
-	private float mLastY = -1;
+	// a flick this fast (dp/s) over half the pull distance is a full pull
+	private final static int FLICK_VELOCITY = 1000;
+
+	// items per second above which a scroll counts as fast
+	private final static float FAST_SCROLL_VELOCITY = 20f;
+
+	// a frame later than 1.5 vsyncs at 60Hz missed its budget
+	private final static long FRAME_BUDGET_NANOS = 16666667L * 3 / 2;
+
+	// where the last refresh time of keyed lists is kept
+	private final static String PREFS_REFRESH_TIME = "listview_plus_refresh_time";
+
+	// rows from the top at which load previous fires by default
+	private final static int DEFAULT_PREVIOUS_DISTANCE = 5;
+
+	// assumed load latency until the first load more has been measured
+	private final static long DEFAULT_LOAD_LATENCY = 1000;
+	// weight of the newest sample in the velocity/latency averages
+	private final static float SMOOTHING = 0.3f;
+
+	// pointer tracking, slop and velocity of the pull gesture
+	private PullGestureTracker mGesture;
+	// release velocity that arms refresh/load before the full pull distance
+	private float mFlickVelocity;
+	// below this many adapter items the footer is collapsed
 	private int minItemCount = 3;
-	// used for scroll back
-	private Scroller mScroller;
+	// used for header and footer scroll back
+	private SpringAnimator mHeaderSpring;
+	private SpringAnimator mFooterSpring;
+	private SpringCallback mSpringCallback = new SpringCallback();
+	private OnAnimationFrameListener mFrameListener;
+	// null unless someone collects metrics, every report checks it first
+	private MetricsListener mMetrics;
+	private long mRefreshStartTime;
+	private long mPullStartTime;
 	// user's scroll listener
 	private OnScrollListener mScrollListener;
-	// for mScroller, scroll back from header or footer.
-	private int mScrollBack;
 
 	// the interface to trigger refresh and load more.
 	private ListViewPlusListener mListener;
-
+	// the adapter given to setAdapter, before header/footer wrapping
+	private ListAdapter mAdapter;
+	// bumped by every submitSnapshot, older diffs are dropped
+	private int mSnapshotGeneration;
+	// a submitted snapshot is still being diffed
+	private boolean mSnapshotPending;
+	private PageWindow mPageStore;
+	private ViewPreInflater mPreInflater;
+
+	// created empty, its content is inflated on the first pull
 	private ListViewPlusHeader mHeader;
 	// header view content, use it to calculate the Header's height. And hide it
 	// when disable pull refresh.
-	private RelativeLayout mHeaderContent;
+	private View mHeaderContent;
 	private TextView mHeaderTime;
+	// drawn instead of the inflated header/footer content when set
+	private PullIndicator mHeaderIndicator;
+	private PullIndicator mFooterIndicator;
+	private ListViewPlusPool mPool;
+	// pinned section header, null when disabled
+	private StickyHeader mStickyHeader;
 	private int mHeaderHeight;
+	// applied when the header content is created
+	private CharSequence mRefreshTime;
+	// last refresh, shown as relative time when no text was set
+	private long mLastRefreshTime;
+	private String mRefreshTimeKey;
+	// where the time is kept, only while a key is set
+	private SharedPreferences mRefreshTimePrefs;
+	private RefreshTimeFormatter mTimeFormatter;
+	private boolean mTimeTickerScheduled;
+	private final Runnable mTimeTicker = new Runnable() {
+		@Override
+		public void run() {
+			mTimeTickerScheduled = false;
+			updateRefreshTimeText();
+		}
+	};
 
 	private LinearLayout mFooterLayout;
+	// created when load more is enabled
 	private ListViewPlusFooter mFooterView;
 	private boolean mIsFooterReady = false;
+	// whether the footer content is currently shown, changed only on
+	// transitions so a scroll never touches the footer or the adapter.
+	private boolean mFooterShown = true;
 
 	private boolean mEnablePullRefresh = true;
 	private boolean mPullRefreshing = false;
 
+	// drive header reveal by canvas translation, commit layout only on settle
+	private boolean mLayoutFreePull = false;
+	// extra header reveal on top of the committed header height
+	private int mPullOffset;
+
 	private boolean mEnablePullLoad = false;
 	private boolean mEnableAutoLoad = false;
 	private boolean mPullLoading = false;
 
+	// every refresh/load gets a new token, 0 while none is running.
+	private int mOperationGeneration;
+	private int mRefreshToken;
+	private int mLoadToken;
+
+	// load previous: prepend older content before the top is reached
+	private OnLoadPreviousListener mPreviousListener;
+	private boolean mEnableLoadPrevious = false;
+	private int mPreviousDistance = DEFAULT_PREVIOUS_DISTANCE;
+	private boolean mLoadingPrevious = false;
+	// started by a pull, the header indicator stays until it completes
+	private boolean mPreviousFromPull = false;
+	private int mPreviousToken;
+	// rows on screen at a prepend, kept with their items until the layout
+	private final ArrayList<View> mKeptRows = new ArrayList<View>();
+
+	// instance state: the row that was on top until the data is back
+	private PagingStateListener mPagingStateListener;
+	private long mPendingAnchorId = AdapterView.INVALID_ROW_ID;
+	private int mPendingAnchorPosition = -1;
+	private int mPendingAnchorOffset;
+	// set while restoreAnchor waits for a snapshot to bring the data
+	private int mPendingAnchorHint = -1;
+
 	// total list items, used to detect is at the bottom of ListView
 	private int mTotalItemCount;
 
+	// prefetch: load more before the end is reached
+	private int mPrefetchItems;
+	private float mPrefetchScreens;
+	private int mScrollState = SCROLL_STATE_IDLE;
+	private int mLastFirstVisible;
+	private long mLastScrollTime;
+	// items per millisecond, positive when moving towards the end
+	private float mItemVelocity;
+	private long mLoadStartTime;
+	private long mLoadLatency = DEFAULT_LOAD_LATENCY;
+	// item count the last prefetch fired at, one prefetch per page
+	private int mPrefetchCount = -1;
+
+	// deferred binding: rows bound while fast are upgraded when it slows
+	private float mFastScrollVelocity = FAST_SCROLL_VELOCITY;
+	private boolean mFastScrolling;
+
 	public ListViewPlus(Context context) {
 		super(context);
 		initWithContext(context);
@@ -101,46 +217,106 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 	}
 
 	private void initWithContext(Context context) {
-		mScroller = new Scroller(context, new DecelerateInterpolator());
+		mHeaderSpring = new SpringAnimator(mSpringCallback);
+		mFooterSpring = new SpringAnimator(mSpringCallback);
+		mGesture = new PullGestureTracker(context);
+		mFlickVelocity = FLICK_VELOCITY
+				* context.getResources().getDisplayMetrics().density;
 		super.setOnScrollListener(this);
 
-		// init header view
+		// the header and footer rows must be added before the adapter is set,
+		// but their content is only built when it is needed.
 		mHeader = new ListViewPlusHeader(context);
-		mHeaderContent = (RelativeLayout) mHeader
-				.findViewById(R.id.listview_plus_header_content);
-		mHeaderTime = (TextView) mHeader
-				.findViewById(R.id.listview_plus_header_time);
 		addHeaderView(mHeader);
-
-		// init footer view
-		mFooterView = new ListViewPlusFooter(context);
 		mFooterLayout = new LinearLayout(context);
+	}
+
+	/**
+	 * Inflate the header content on the first pull or auto refresh.
+	 */
+	private void ensureHeaderContent() {
+		if (mHeaderContent != null)
+			return;
+		mHeader.ensureContent();
+		if (mHeaderIndicator != null) {
+			mHeaderContent = mHeaderIndicator.getView();
+			mHeaderHeight = mHeaderIndicator.getContentHeight();
+		} else {
+			mHeaderContent = mHeader
+					.findViewById(R.id.listview_plus_header_content);
+			mHeaderTime = (TextView) mHeader
+					.findViewById(R.id.listview_plus_header_time);
+
+			// init header height, the content has a fixed height so no
+			// layout pass is needed to know it.
+			ViewGroup.LayoutParams lp = mHeaderContent.getLayoutParams();
+			if (lp != null && lp.height > 0) {
+				mHeaderHeight = lp.height;
+			} else {
+				int spec = MeasureSpec.makeMeasureSpec(0,
+						MeasureSpec.UNSPECIFIED);
+				mHeaderContent.measure(spec, spec);
+				mHeaderHeight = mHeaderContent.getMeasuredHeight();
+			}
+		}
+
+		updateHeaderContentVisibility();
+		if (mRefreshTime != null) {
+			setHeaderTimeText(mRefreshTime);
+		}
+	}
+
+	private void setHeaderTimeText(CharSequence text) {
+		if (mHeaderIndicator != null) {
+			mHeaderIndicator.setTimeText(text);
+		} else if (mHeaderTime != null) {
+			mHeaderTime.setText(text);
+		}
+	}
+
+	/**
+	 * Render the last refresh time as relative text. Cheap enough to call on
+	 * every move: it allocates nothing and touches the TextView only when
+	 * the text changes. Keeps a ticker running while the header is visible.
+	 */
+	private void updateRefreshTimeText() {
+		if (mHeaderContent == null || mRefreshTime != null
+				|| mLastRefreshTime <= 0 || getHeaderVisibleHeight() <= 0)
+			return;
+		if (mTimeFormatter == null) {
+			mTimeFormatter = new RefreshTimeFormatter(getResources());
+		}
+		long now = System.currentTimeMillis();
+		if (mTimeFormatter.update(mLastRefreshTime, now)) {
+			if (mHeaderIndicator != null) {
+				mHeaderIndicator.setTimeText(mTimeFormatter.getBuffer(), 0,
+						mTimeFormatter.getLength());
+			} else if (mHeaderTime != null) {
+				mHeaderTime.setText(mTimeFormatter.getBuffer(), 0,
+						mTimeFormatter.getLength());
+			}
+		}
+		if (!mTimeTickerScheduled) {
+			mTimeTickerScheduled = true;
+			postDelayed(mTimeTicker,
+					mTimeFormatter.getNextChangeDelay(mLastRefreshTime, now));
+		}
+	}
+
+	/**
+	 * Create the footer content when load more is enabled.
+	 */
+	private void ensureFooterView() {
+		if (mFooterView != null)
+			return;
+		mFooterView = new ListViewPlusFooter(getContext());
 		LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
 				LinearLayout.LayoutParams.MATCH_PARENT,
 				LinearLayout.LayoutParams.MATCH_PARENT);
 		params.gravity = Gravity.CENTER;
 		mFooterLayout.addView(mFooterView, params);
-
-		// init header height
-		ViewTreeObserver observer = mHeader.getViewTreeObserver();
-		if (null != observer) {
-			observer.addOnGlobalLayoutListener(new OnGlobalLayoutListener() {
-				@SuppressWarnings("deprecation")
-				@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
-				@Override
-				public void onGlobalLayout() {
-					mHeaderHeight = mHeaderContent.getHeight();
-					ViewTreeObserver observer = getViewTreeObserver();
-
-					if (null != observer) {
-						if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
-							observer.removeGlobalOnLayoutListener(this);
-						} else {
-							observer.removeOnGlobalLayoutListener(this);
-						}
-					}
-				}
-			});
+		if (!mFooterShown) {
+			mFooterView.setVisibility(View.GONE);
 		}
 	}
 
@@ -153,7 +329,270 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 			addFooterView(mFooterLayout);
 		}
 
+		mAdapter = adapter;
 		super.setAdapter(adapter);
+		if (mPreInflater != null) {
+			mPreInflater.warm();
+		}
+		if (mStickyHeader != null) {
+			mStickyHeader.setAdapter(getStickyHeaderAdapter());
+		}
+	}
+
+	private StickyHeaderAdapter getStickyHeaderAdapter() {
+		if (mAdapter instanceof StickyHeaderAdapter)
+			return (StickyHeaderAdapter) mAdapter;
+		return null;
+	}
+
+	/**
+	 * Refresh the list with a new snapshot of its items. The difference to
+	 * the current items is computed by item key on a background thread; if
+	 * the keys are unchanged only the visible rows whose content changed are
+	 * bound again, otherwise the data set changes, the first visible row
+	 * stays at the same pixel offset and the rows on screen keep their views
+	 * through the change, so a {@link ListViewPlusAdapter} only binds the
+	 * inserted rows and the ones whose content changed. The adapter must implement
+	 * {@link SnapshotAdapter}. While a {@link ListViewPlusAdapter} is
+	 * filtering, the new items are filtered on the same background thread and
+	 * the matches are diffed against the rows shown.
+	 * 
+	 * @param items
+	 */
+	public <T> void submitSnapshot(List<T> items) {
+		if (!(mAdapter instanceof SnapshotAdapter)) {
+			throw new IllegalStateException(
+					"submitSnapshot needs an adapter implementing SnapshotAdapter");
+		}
+		@SuppressWarnings("unchecked")
+		final SnapshotAdapter<T> adapter = (SnapshotAdapter<T>) mAdapter;
+		final List<T> oldItems = new ArrayList<T>(adapter.getSnapshot());
+		final List<T> allItems = new ArrayList<T>(items);
+		final String query = getFilterQuery(adapter);
+		final int generation = ++mSnapshotGeneration;
+		mSnapshotPending = true;
+
+		getLoaderExecutor().execute(new Runnable() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public void run() {
+				final List<T> newItems = query == null ? allItems
+						: ((ListViewPlusAdapter<T, ?>) adapter).filterNow(
+								allItems, query);
+				final SnapshotDiff diff = SnapshotDiff.compute(adapter,
+						oldItems, newItems);
+				post(new Runnable() {
+					@Override
+					public void run() {
+						if (generation != mSnapshotGeneration)
+							return;
+						mSnapshotPending = false;
+						if (adapter != mAdapter) {
+							// dropped
+						} else if (!isSameQuery(query,
+								getFilterQuery(adapter))) {
+							// the filter changed meanwhile, the adapter
+							// filters the items again itself.
+							adapter.setSnapshot(allItems);
+							adapter.notifyDataSetChanged();
+						} else {
+							applySnapshot(adapter, oldItems, newItems,
+									query == null ? null : allItems, diff);
+						}
+						if (mPendingAnchorHint >= 0) {
+							// a restore was waiting for this data.
+							restoreAnchor(mPendingAnchorHint);
+						}
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Keep only the pages of {@code store} around the visible rows resident.
+	 * The adapter should read its items from the store.
+	 * 
+	 * @param store
+	 *            null to detach
+	 */
+	public void setPageStore(WindowedPageStore<?> store) {
+		setPageWindow(store);
+	}
+
+	/**
+	 * Back the list with a sparse store of known total count, its pages are
+	 * loaded around the visible rows. Disable load more when using it.
+	 * 
+	 * @param store
+	 *            null to detach
+	 */
+	public void setPageStore(SparsePageStore<?> store) {
+		setPageWindow(store);
+	}
+
+	private void setPageWindow(PageWindow store) {
+		if (mPageStore != null) {
+			mPageStore.attach(null);
+		}
+		mPageStore = store;
+		if (store != null) {
+			store.attach(this);
+		}
+	}
+
+	/**
+	 * Set a pool of pre-inflated row views. It is warmed when the adapter is
+	 * set and while a refresh is running, so the adapter can take its
+	 * convert views from {@link #getPreInflater()} instead of inflating.
+	 * 
+	 * @param preInflater
+	 *            null to remove
+	 */
+	public void setPreInflater(ViewPreInflater preInflater) {
+		if (mPreInflater != null && mPreInflater.detach(this)) {
+			// not shared with another list
+			mPreInflater.clear();
+		}
+		mPreInflater = preInflater;
+		if (preInflater != null) {
+			preInflater.attach(this);
+			preInflater.warm();
+		}
+	}
+
+	public ViewPreInflater getPreInflater() {
+		return mPreInflater;
+	}
+
+	/**
+	 * Share the pre-inflater and the loader executor with the other lists
+	 * attached to {@code pool}. Recycled rows stay with each list. The
+	 * header and footer stay as they are; to share the indicator resources
+	 * too, set indicators from {@link ListViewPlusPool#newIndicator}.
+	 * 
+	 * @param pool
+	 *            null to detach
+	 */
+	public void setPool(ListViewPlusPool pool) {
+		if (pool == mPool)
+			return;
+		ListViewPlusPool old = mPool;
+		mPool = pool;
+		if (old != null && mPreInflater == old.getPreInflater()) {
+			setPreInflater(null);
+		}
+		if (pool != null) {
+			setPreInflater(pool.getPreInflater());
+		}
+	}
+
+	public ListViewPlusPool getPool() {
+		return mPool;
+	}
+
+	/**
+	 * @return the executor of the pool, or
+	 *         {@link PagedLoader#getDefaultExecutor()} without one
+	 */
+	public Executor getLoaderExecutor() {
+		return mPool != null ? mPool.getExecutor() : PagedLoader
+				.getDefaultExecutor();
+	}
+
+	/**
+	 * Bind the visible rows of the adapter positions [start, end) again, in
+	 * place and without a data set change.
+	 */
+	void rebindRange(int start, int end) {
+		if (mAdapter == null)
+			return;
+		int position = getFirstVisiblePosition() - getHeaderViewsCount();
+		for (int i = 0, n = getChildCount(); i < n; i++, position++) {
+			if (position >= start && position < end
+					&& position < mAdapter.getCount()) {
+				mAdapter.getView(position, getChildAt(i), this);
+			}
+		}
+	}
+
+	private static String getFilterQuery(SnapshotAdapter<?> adapter) {
+		if (adapter instanceof ListViewPlusAdapter)
+			return ((ListViewPlusAdapter<?, ?>) adapter).getFilterQuery();
+		return null;
+	}
+
+	private static boolean isSameQuery(String query, String current) {
+		return query == null ? current == null : query.equals(current);
+	}
+
+	/**
+	 * @param allItems
+	 *            the unfiltered items if {@code newItems} are the matches of
+	 *            the adapter's filter, null otherwise
+	 */
+	private <T> void applySnapshot(SnapshotAdapter<T> adapter,
+			List<T> oldItems, List<T> newItems, List<T> allItems,
+			SnapshotDiff diff) {
+		int headerCount = getHeaderViewsCount();
+		int first = getFirstVisiblePosition();
+
+		if (diff.sameStructure) {
+			setSnapshot(adapter, newItems, allItems);
+			// same ids at the same positions, rebind changed rows in place.
+			for (int i = 0, n = getChildCount(); i < n; i++) {
+				int position = first + i - headerCount;
+				if (position >= 0 && position < newItems.size()
+						&& diff.changed[position]) {
+					rebindRange(position, position + 1);
+				}
+			}
+			return;
+		}
+
+		// remember which item is at the top and where, the first item row
+		// if the header row is showing.
+		int index = Math.max(0, headerCount - first);
+		int anchor = first + index - headerCount;
+		View anchorView = getChildAt(index);
+		int anchorTop = anchorView == null ? 0 : anchorView.getTop();
+		long anchorKey = 0;
+		boolean hasAnchor = anchorView != null && anchor < oldItems.size();
+		if (hasAnchor) {
+			anchorKey = adapter.getItemKey(oldItems.get(anchor));
+		}
+
+		// the rows get their own views back at their new positions, and the
+		// ones still showing their item are not bound again.
+		keepRows();
+		setSnapshot(adapter, newItems, allItems);
+		if (adapter instanceof ListViewPlusAdapter) {
+			((ListViewPlusAdapter<?, ?>) adapter).notifySnapshotChanged();
+		} else {
+			adapter.notifyDataSetChanged();
+		}
+
+		if (hasAnchor) {
+			Integer newPosition = diff.newPositions.get(anchorKey);
+			if (newPosition == null) {
+				newPosition = Math.min(anchor, newItems.size() - 1);
+			}
+			if (newPosition >= 0) {
+				setSelectionFromTop(newPosition + headerCount, anchorTop
+						- getPaddingTop());
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> void setSnapshot(SnapshotAdapter<T> adapter,
+			List<T> items, List<T> allItems) {
+		if (allItems != null) {
+			((ListViewPlusAdapter<T, ?>) adapter).setFilteredSnapshot(
+					allItems, items);
+		} else {
+			adapter.setSnapshot(items);
+		}
 	}
 
 	/**
@@ -163,9 +602,168 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 	 */
 	public void setRefreshEnable(boolean enable) {
 		mEnablePullRefresh = enable;
+		updateHeaderContentVisibility();
+	}
+
+	/**
+	 * Enable or disable the pinned section header. The adapter must
+	 * implement {@link StickyHeaderAdapter}; the header of the section at
+	 * the top is drawn over the rows and pushed up by the next section.
+	 * 
+	 * @param enable
+	 */
+	public void setStickyHeaderEnable(boolean enable) {
+		if (enable == (mStickyHeader != null))
+			return;
+		if (enable) {
+			mStickyHeader = new StickyHeader(this);
+			mStickyHeader.setAdapter(getStickyHeaderAdapter());
+		} else {
+			mStickyHeader.setAdapter(null);
+			mStickyHeader = null;
+		}
+	}
 
+	/**
+	 * Tell the sticky header that the next data set change appends
+	 * {@code count} items, see {@link PagedLoader}.
+	 * 
+	 * @param count
+	 *            0 when the change is over
+	 */
+	void setAppendCount(int count) {
+		if (mStickyHeader != null) {
+			mStickyHeader.setAppendCount(count);
+		}
+	}
+
+	/**
+	 * @return the section starts of the adapter, or null if sticky headers
+	 *         are disabled
+	 */
+	public SectionIndex getSectionIndex() {
+		return mStickyHeader == null ? null : mStickyHeader.getIndex();
+	}
+
+	/**
+	 * Enable or disable load previous. Older content is requested from the
+	 * {@link OnLoadPreviousListener} when scrolling up comes near the top.
+	 * If pull down refresh is disabled, pulling the header down loads
+	 * previous as well, and the header indicator shows until it completes.
+	 * 
+	 * @param enable
+	 */
+	public void setLoadPreviousEnable(boolean enable) {
+		mEnableLoadPrevious = enable;
+		updateHeaderContentVisibility();
+	}
+
+	/**
+	 * Set how many rows from the top load previous fires at, 5 by default.
+	 * 
+	 * @param items
+	 */
+	public void setLoadPreviousDistance(int items) {
+		mPreviousDistance = Math.max(0, items);
+	}
+
+	public void setOnLoadPreviousListener(OnLoadPreviousListener listener) {
+		mPreviousListener = listener;
+	}
+
+	/**
+	 * @return the token of the running load previous, 0 if none
+	 */
+	public int getLoadPreviousToken() {
+		return mPreviousToken;
+	}
+
+	/**
+	 * Complete a load previous. Insert the items at the start of the adapter
+	 * data and notify the adapter first; the row that was on top is then kept
+	 * at its pixel offset instead of the list jumping to the new items. With
+	 * stable ids the rows on screen keep their views, and a
+	 * {@link ListViewPlusAdapter} notified through
+	 * {@link ListViewPlusAdapter#notifyItemsPrepended(int)} does not bind
+	 * them again. Ignored if the token is no longer current.
+	 * 
+	 * @param token
+	 *            from {@link #getLoadPreviousToken()}
+	 * @param prependedCount
+	 *            number of items inserted at the start, 0 if none
+	 */
+	public void stopLoadPrevious(int token, int prependedCount) {
+		if (token != mPreviousToken || !mLoadingPrevious)
+			return;
+		mPreviousToken = 0;
+		mLoadingPrevious = false;
+		if (prependedCount > 0) {
+			keepAnchor(prependedCount);
+		}
+		if (mPreviousFromPull) {
+			mPreviousFromPull = false;
+			if (prependedCount > 0) {
+				// the header goes off screen with the anchor, no animation.
+				mHeaderSpring.cancel();
+				mPullOffset = 0;
+				mHeader.setVisibleHeight(0);
+			} else {
+				resetHeaderHeight();
+			}
+		}
+	}
+
+	private void updateHeaderContentVisibility() {
 		// disable, hide the content
-		mHeaderContent.setVisibility(enable ? View.VISIBLE : View.INVISIBLE);
+		if (mHeaderContent != null) {
+			mHeaderContent.setVisibility(isHeaderPullEnabled() ? View.VISIBLE
+					: View.INVISIBLE);
+		}
+	}
+
+	private boolean isHeaderPullEnabled() {
+		return mEnablePullRefresh || mEnableLoadPrevious;
+	}
+
+	/**
+	 * @return true while the header is held open by a refresh or a pulled
+	 *         load previous
+	 */
+	private boolean isHeaderBusy() {
+		return mPullRefreshing || mPreviousFromPull;
+	}
+
+	/**
+	 * Tune the spring the header and footer settle with.
+	 * 
+	 * @param stiffness
+	 *            spring constant, higher is snappier, 230 by default
+	 * @param dampingRatio
+	 *            1 (the default) is critically damped, lower values
+	 *            overshoot
+	 */
+	public void setSettleSpring(float stiffness, float dampingRatio) {
+		mHeaderSpring.setSpring(stiffness, dampingRatio);
+		mFooterSpring.setSpring(stiffness, dampingRatio);
+	}
+
+	/**
+	 * Enable or disable layout free pull. When enabled, the header reveal and
+	 * the content offset are drawn by translation during the gesture, and the
+	 * header height is committed to layout only once it settles.
+	 * 
+	 * @param enable
+	 */
+	public void setLayoutFreePullEnable(boolean enable) {
+		if (mLayoutFreePull == enable)
+			return;
+		mLayoutFreePull = enable;
+		if (!enable && mPullOffset != 0) {
+			// fold the pending offset back into the layout height.
+			mHeaderSpring.cancel();
+			mHeader.setVisibleHeight(mHeader.getVisibleHeight() + mPullOffset);
+			mPullOffset = 0;
+		}
 	}
 
 	/**
@@ -177,6 +775,8 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 		mEnablePullLoad = enable;
 
 		if (!mEnablePullLoad) {
+			if (mFooterView == null)
+				return;
 			mFooterView.setBottomMargin(0);
 			mFooterView.hide();
 			mFooterView.setPadding(0, 0, 0, mFooterView.getHeight() * (-1));
@@ -184,19 +784,92 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 
 		} else {
 			mPullLoading = false;
-			mFooterView.setPadding(0, 0, 0, 0);
-			mFooterView.show();
-			mFooterView.setState(ListViewPlusFooter.STATE_NORMAL);
-			// both "pull up" and "click" will invoke load more.
-			mFooterView.setOnClickListener(new OnClickListener() {
-				@Override
-				public void onClick(View v) {
-					startLoadMore();
-				}
-			});
+			mLoadToken = 0;
+			ensureFooterView();
+			showFooter();
+		}
+	}
+
+	private void showFooter() {
+		mFooterView.setPadding(0, 0, 0, 0);
+		mFooterView.show();
+		mFooterView.setState(mPullLoading ? ListViewPlusFooter.STATE_LOADING
+				: ListViewPlusFooter.STATE_NORMAL);
+		// both "pull up" and "click" will invoke load more.
+		mFooterView.setOnClickListener(new OnClickListener() {
+			@Override
+			public void onClick(View v) {
+				startLoadMore();
+			}
+		});
+	}
+
+	/**
+	 * Use an indicator instead of the inflated header content, e.g. a
+	 * {@link FlatPullIndicator}. null goes back to the inflated one.
+	 * 
+	 * @param indicator
+	 */
+	public void setHeaderIndicator(PullIndicator indicator) {
+		if (indicator == mHeaderIndicator)
+			return;
+		mHeaderSpring.cancel();
+		mPullOffset = 0;
+		mHeader.removeContent();
+		mHeaderIndicator = indicator;
+		mHeaderContent = null;
+		mHeaderTime = null;
+		if (mTimeFormatter != null) {
+			// the new content shows no time yet
+			mTimeFormatter.invalidate();
+		}
+		if (isHeaderBusy()) {
+			ensureHeaderContent();
+			mHeader.setVisibleHeight(mHeaderHeight);
+			mHeader.setState(ListViewPlusHeader.STATE_REFRESHING);
+			updateRefreshTimeText();
+		}
+	}
+
+	/**
+	 * Use an indicator instead of the inflated footer content, e.g. a
+	 * {@link FlatPullIndicator}. null goes back to the inflated one.
+	 * 
+	 * @param indicator
+	 */
+	public void setFooterIndicator(PullIndicator indicator) {
+		if (indicator == mFooterIndicator)
+			return;
+		mFooterIndicator = indicator;
+		if (mFooterView == null)
+			return;
+		mFooterSpring.cancel();
+		mFooterLayout.removeView(mFooterView);
+		mFooterView = null;
+		if (mEnablePullLoad) {
+			ensureFooterView();
+			showFooter();
 		}
 	}
 
+	/**
+	 * Set how many adapter items the list needs before the load more footer
+	 * is shown. Below that the footer is collapsed instead of being removed,
+	 * so the adapter structure never changes while scrolling.
+	 * 
+	 * @param count
+	 */
+	public void setMinItemCount(int count) {
+		minItemCount = count;
+		if (mTotalItemCount > 0) {
+			updateFooterVisibility(mTotalItemCount);
+		}
+	}
+
+	public int getMinItemCount() {
+		return minItemCount;
+	}
+
 	/**
 	 * Enable or disable auto load more feature when scroll to bottom.
 	 * 
@@ -206,12 +879,133 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 		mEnableAutoLoad = enable;
 	}
 
+	/**
+	 * Start auto load more this many items before the end of the list. The
+	 * distance grows with the current fling velocity times the measured load
+	 * latency, so the next page is usually ready before the end is reached.
+	 * Only used when auto load is enabled. 0 disables prefetch.
+	 * 
+	 * @param items
+	 */
+	public void setPrefetchDistance(int items) {
+		mPrefetchItems = Math.max(0, items);
+		mPrefetchScreens = 0;
+	}
+
+	/**
+	 * Same as {@link #setPrefetchDistance(int)}, expressed in screens of
+	 * visible items.
+	 * 
+	 * @param screens
+	 */
+	public void setPrefetchScreens(float screens) {
+		mPrefetchScreens = Math.max(0, screens);
+		mPrefetchItems = 0;
+	}
+
+	/**
+	 * @return the current scroll velocity in items per second, positive when
+	 *         moving towards the end of the list, 0 when idle
+	 */
+	public float getScrollVelocity() {
+		return mItemVelocity * 1000;
+	}
+
+	/**
+	 * @return {@link #SCROLL_SPEED_IDLE}, {@link #SCROLL_SPEED_SLOW} or
+	 *         {@link #SCROLL_SPEED_FAST}
+	 */
+	public int getScrollSpeed() {
+		if (mScrollState == SCROLL_STATE_IDLE)
+			return SCROLL_SPEED_IDLE;
+		return mFastScrolling ? SCROLL_SPEED_FAST : SCROLL_SPEED_SLOW;
+	}
+
+	/**
+	 * @return true while rows should only get a cheap bind, see
+	 *         {@link DeferredBindAdapter}
+	 */
+	public boolean isFastScrolling() {
+		return mFastScrolling;
+	}
+
+	/**
+	 * Set the speed above which a scroll counts as fast, 20 items per second
+	 * by default.
+	 * 
+	 * @param itemsPerSecond
+	 */
+	public void setFastScrollVelocity(float itemsPerSecond) {
+		mFastScrollVelocity = Math.max(0, itemsPerSecond);
+	}
+
+	/**
+	 * @return the token of the running refresh, 0 if none. Read it in
+	 *         {@link ListViewPlusListener#onRefresh()} and pass it to
+	 *         {@link #stopRefresh(int)} when the refresh completes.
+	 */
+	public int getRefreshToken() {
+		return mRefreshToken;
+	}
+
+	/**
+	 * @return the token of the running load more, 0 if none. Read it in
+	 *         {@link ListViewPlusListener#onLoadMore()} and pass it to
+	 *         {@link #stopLoadMore(int)} when the load completes.
+	 */
+	public int getLoadToken() {
+		return mLoadToken;
+	}
+
+	/**
+	 * @return false once the refresh or load of this token has completed or
+	 *         been superseded, its result should then be dropped
+	 */
+	public boolean isOperationCurrent(int token) {
+		return token != 0
+				&& (token == mRefreshToken || token == mLoadToken || token == mPreviousToken);
+	}
+
+	/**
+	 * Stop the refresh of this token. Ignored if it has completed already or
+	 * a newer refresh has started.
+	 * 
+	 * @param token
+	 *            from {@link #getRefreshToken()}
+	 */
+	public void stopRefresh(int token) {
+		if (token == mRefreshToken) {
+			stopRefresh();
+		}
+	}
+
+	/**
+	 * Stop the load more of this token. Ignored if it has completed already,
+	 * has been superseded by a refresh or a newer load has started.
+	 * 
+	 * @param token
+	 *            from {@link #getLoadToken()}
+	 */
+	public void stopLoadMore(int token) {
+		if (token == mLoadToken) {
+			stopLoadMore();
+		}
+	}
+
 	/**
 	 * Stop refresh, reset header view.
 	 */
 	public void stopRefresh() {
+		mRefreshToken = 0;
 		if (mPullRefreshing) {
 			mPullRefreshing = false;
+			if (mMetrics != null && mRefreshStartTime > 0) {
+				mMetrics.onRefreshLatency(SystemClock.uptimeMillis()
+						- mRefreshStartTime);
+			}
+			mRefreshStartTime = 0;
+			// a text set by setRefreshTime stays
+			recordRefreshTime(System.currentTimeMillis());
 			resetHeaderHeight();
 		}
 	}
@@ -220,19 +1014,107 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 	 * Stop load more, reset footer view.
 	 */
 	public void stopLoadMore() {
+		mLoadToken = 0;
 		if (mPullLoading) {
 			mPullLoading = false;
-			mFooterView.setState(ListViewPlusFooter.STATE_NORMAL);
+			long latency = SystemClock.uptimeMillis() - mLoadStartTime;
+			mLoadLatency += (long) ((latency - mLoadLatency) * SMOOTHING);
+			if (mMetrics != null) {
+				mMetrics.onLoadMoreLatency(latency);
+			}
+			if (mFooterView != null) {
+				mFooterView.setState(ListViewPlusFooter.STATE_NORMAL);
+			}
 		}
 	}
 
 	/**
-	 * Set last refresh time
+	 * Set last refresh time. The header shows this text until it is set to
+	 * null or {@link #setLastRefreshTime(long)} is called; refreshes still
+	 * record their time meanwhile.
 	 * 
 	 * @param time
+	 *            null to show the time of the last refresh as relative text
 	 */
 	public void setRefreshTime(String time) {
-		mHeaderTime.setText(time);
+		mRefreshTime = time;
+		if (time != null) {
+			setHeaderTimeText(time);
+			return;
+		}
+		if (mTimeFormatter != null) {
+			mTimeFormatter.invalidate();
+		}
+		updateRefreshTimeText();
+	}
+
+	/**
+	 * Set the time of the last refresh. The header shows it as relative
+	 * text, e.g. "5分钟前", instead of a text set by
+	 * {@link #setRefreshTime(String)}. {@link #stopRefresh()} records the
+	 * time of a refresh the same way, but leaves such a text in place.
+	 * 
+	 * @param millis
+	 *            wall clock time, see {@link System#currentTimeMillis()}
+	 */
+	public void setLastRefreshTime(long millis) {
+		mRefreshTime = null;
+		recordRefreshTime(millis);
+	}
+
+	private void recordRefreshTime(long millis) {
+		mLastRefreshTime = millis;
+		if (mTimeFormatter != null) {
+			mTimeFormatter.invalidate();
+		}
+		if (mRefreshTimePrefs != null) {
+			saveRefreshTime(mRefreshTimePrefs.edit().putLong(
+					mRefreshTimeKey, millis));
+		}
+		updateRefreshTimeText();
+	}
+
+	/**
+	 * Write without blocking the UI thread, it happens on every refresh.
+	 * Before apply() existed the write runs on the loader executor.
+	 */
+	private void saveRefreshTime(final SharedPreferences.Editor editor) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD) {
+			editor.apply();
+			return;
+		}
+		getLoaderExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				editor.commit();
+			}
+		});
+	}
+
+	public long getLastRefreshTime() {
+		return mLastRefreshTime;
+	}
+
+	/**
+	 * Keep the last refresh time of this list under {@code key}, so it
+	 * survives restarts. Loads the stored time.
+	 * 
+	 * @param key
+	 *            unique per list, null to stop persisting
+	 */
+	public void setRefreshTimeKey(String key) {
+		mRefreshTimeKey = key;
+		mRefreshTimePrefs = key == null ? null : getContext()
+				.getSharedPreferences(PREFS_REFRESH_TIME, Context.MODE_PRIVATE);
+		if (key != null) {
+			long time = mRefreshTimePrefs.getLong(key, 0);
+			if (time > 0) {
+				mLastRefreshTime = time;
+				if (mTimeFormatter != null) {
+					mTimeFormatter.invalidate();
+				}
+			}
+		}
 	}
 
 	/**
@@ -245,12 +1127,57 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 	}
 
 	/**
-	 * Auto call back refresh.
+	 * Set a listener that is told how long each frame of the header and
+	 * footer scroll back took. Pass null to stop the reports.
+	 * 
+	 * @param listener
+	 */
+	public void setOnAnimationFrameListener(OnAnimationFrameListener listener) {
+		mFrameListener = listener;
+		updateSpringFrameListener();
+	}
+
+	/**
+	 * Set a sink for refresh/load latency, auto load, pull gesture and
+	 * animation frame metrics. Nothing is measured while it is null.
+	 * 
+	 * @param listener
+	 */
+	public void setMetricsListener(MetricsListener listener) {
+		mMetrics = listener;
+		updateSpringFrameListener();
+	}
+
+	/**
+	 * Mark the pull, scroll and spring animation work of every ListViewPlus
+	 * as systrace sections, so they can be measured in a systrace or Perfetto
+	 * capture on a device. Has no effect below API 18. Off by default.
+	 * 
+	 * @param enable
+	 */
+	public static void setTraceEnabled(boolean enable) {
+		ListViewPlusTrace.setEnabled(enable);
+	}
+
+	private void updateSpringFrameListener() {
+		boolean listen = mFrameListener != null || mMetrics != null;
+		mHeaderSpring.setFrameListener(listen ? mSpringCallback : null);
+		mFooterSpring.setFrameListener(listen ? mSpringCallback : null);
+	}
+
+	/**
+	 * Auto call back refresh. Only shows the header if a refresh is running
+	 * already.
 	 */
 	public void autoRefresh() {
+		ensureHeaderContent();
+		mHeaderSpring.cancel();
+		mPullOffset = 0;
 		mHeader.setVisibleHeight(mHeaderHeight);
+		if (mPullRefreshing)
+			return;
 
-		if (mEnablePullRefresh && !mPullRefreshing) {
+		if (mEnablePullRefresh) {
 			// update the arrow image not refreshing
 			if (mHeader.getVisibleHeight() > mHeaderHeight) {
 				mHeader.setState(ListViewPlusHeader.STATE_READY);
@@ -261,6 +1188,7 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 
 		mPullRefreshing = true;
 		mHeader.setState(ListViewPlusHeader.STATE_REFRESHING);
+		updateRefreshTimeText();
 		refresh();
 	}
 
@@ -271,47 +1199,105 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 		}
 	}
 
+	/**
+	 * Header height as seen by the user: the committed layout height plus the
+	 * pending layout free offset.
+	 */
+	private int getHeaderVisibleHeight() {
+		return mHeader.getVisibleHeight() + mPullOffset;
+	}
+
+	private void markPullStart() {
+		if (mMetrics != null && mPullStartTime == 0) {
+			mPullStartTime = SystemClock.uptimeMillis();
+		}
+	}
+
 	private void updateHeaderHeight(float delta) {
-		mHeader.setVisibleHeight((int) delta + mHeader.getVisibleHeight());
+		markPullStart();
+		ensureHeaderContent();
+		// shrinking a committed header can't be done by translation without
+		// leaving a gap at the bottom, so that case still goes through layout.
+		boolean layoutFree = mLayoutFreePull
+				&& (delta > 0 || mPullOffset > 0);
+		if (layoutFree) {
+			mPullOffset = Math.max(0, mPullOffset + (int) delta);
+			invalidate();
+		} else {
+			mHeader.setVisibleHeight((int) delta + mHeader.getVisibleHeight());
+		}
 
-		if (mEnablePullRefresh && !mPullRefreshing) {
+		if (isHeaderPullEnabled() && !isHeaderBusy()) {
 			// update the arrow image unrefreshing
-			if (mHeader.getVisibleHeight() > mHeaderHeight) {
+			if (getHeaderVisibleHeight() > mHeaderHeight) {
 				mHeader.setState(ListViewPlusHeader.STATE_READY);
 			} else {
 				mHeader.setState(ListViewPlusHeader.STATE_NORMAL);
 			}
 		}
 
-		// scroll to top each time
-		setSelection(0);
+		if (!layoutFree) {
+			// scroll to top each time
+			setSelection(0);
+		}
+		updateRefreshTimeText();
 	}
 
 	private void resetHeaderHeight() {
-		int height = mHeader.getVisibleHeight();
+		resetHeaderHeight(0);
+	}
+
+	/**
+	 * @param velocity
+	 *            of the header height at release, in pixels per second
+	 */
+	private void resetHeaderHeight(float velocity) {
+		int height = getHeaderVisibleHeight();
 		if (height == 0)
 			return;
 
 		// refreshing and header isn't shown fully. do nothing.
-		if (mPullRefreshing && height <= mHeaderHeight)
+		if (isHeaderBusy() && height <= mHeaderHeight)
 			return;
 
 		// default: scroll back to dismiss header.
 		int finalHeight = 0;
 		// is refreshing, just scroll back to show all the header.
-		if (mPullRefreshing && height > mHeaderHeight) {
+		if (isHeaderBusy() && height > mHeaderHeight) {
 			finalHeight = mHeaderHeight;
 		}
 
-		mScrollBack = SCROLL_BACK_HEADER;
-		mScroller.startScroll(0, height, 0, finalHeight - height,
-				SCROLL_DURATION);
+		if (mLayoutFreePull) {
+			// commit the settled height once, then animate only the offset.
+			if (mHeader.getVisibleHeight() != finalHeight) {
+				mHeader.setVisibleHeight(finalHeight);
+			}
+			mPullOffset = getFirstVisiblePosition() == 0 ? height
+					- finalHeight : 0;
+			invalidate();
+			// a running spring keeps its velocity across the commit.
+			mHeaderSpring.setValue(mPullOffset);
+			settle(mHeaderSpring, velocity, 0);
+		} else {
+			mHeaderSpring.setValue(height);
+			settle(mHeaderSpring, velocity, finalHeight);
+		}
+	}
 
-		// trigger computeScroll
-		invalidate();
+	/**
+	 * Spring to the end value, carrying the velocity of a release over.
+	 */
+	private static void settle(SpringAnimator spring, float velocity,
+			int endValue) {
+		if (velocity != 0) {
+			spring.fling(velocity, endValue);
+		} else {
+			spring.animateTo(endValue);
+		}
 	}
 
 	private void updateFooterHeight(float delta) {
+		markPullStart();
 		int height = mFooterView.getBottomMargin() + (int) delta;
 
 		if (mEnablePullLoad && !mPullLoading) {
@@ -329,92 +1315,386 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 		// setSelection(mTotalItemCount - 1);
 	}
 
-	private void resetFooterHeight() {
-		int bottomMargin = mFooterView.getBottomMargin();
-
-		if (bottomMargin > 0) {
-			mScrollBack = SCROLL_BACK_FOOTER;
-			mScroller.startScroll(0, bottomMargin, 0, -bottomMargin,
-					SCROLL_DURATION);
-			invalidate();
+	/**
+	 * @param velocity
+	 *            of the footer margin at release, in pixels per second
+	 */
+	private void resetFooterHeight(float velocity) {
+		if (mFooterView == null)
+			return;
+		int bottomMargin = mFooterView.getBottomMargin();
+
+		if (bottomMargin > 0) {
+			mFooterSpring.setValue(bottomMargin);
+			settle(mFooterSpring, velocity, 0);
+		}
+	}
+
+	/**
+	 * Loads are single-flight, and none starts while a refresh is running
+	 * since the refresh replaces the list anyway.
+	 */
+	private void startLoadMore() {
+		if (!mEnablePullLoad || mPullLoading || mPullRefreshing
+				|| isFiltering())
+			return;
+		mLoadToken = nextOperationToken();
+		mPullLoading = true;
+		mLoadStartTime = SystemClock.uptimeMillis();
+		mFooterView.setState(ListViewPlusFooter.STATE_LOADING);
+		loadMore();
+	}
+
+	@Override
+	public boolean onTouchEvent(MotionEvent ev) {
+		ListViewPlusTrace.begin("ListViewPlus#pull");
+		switch (mGesture.process(ev)) {
+		case PullGestureTracker.EVENT_DOWN:
+			// grab the header or footer where it is.
+			mHeaderSpring.cancel();
+			mFooterSpring.cancel();
+			break;
+
+		case PullGestureTracker.EVENT_DRAG:
+			final float deltaY = mGesture.getDeltaY();
+
+			if (getFirstVisiblePosition() == 0
+					&& (getHeaderVisibleHeight() > 0 || deltaY > 0)) {
+				// the first item is showing, header has shown or pull down.
+				updateHeaderHeight(deltaY / OFFSET_RADIO);
+				invokeOnScrolling();
+
+			} else if (mFooterView != null && mFooterShown
+					&& getLastVisiblePosition() == mTotalItemCount - 1
+					&& (mFooterView.getBottomMargin() > 0 || deltaY < 0)) {
+				// last item, already pulled up or want to pull up.
+				updateFooterHeight(-deltaY / OFFSET_RADIO);
+			}
+			break;
+
+		case PullGestureTracker.EVENT_RELEASE:
+			// a fast flick counts as a full pull
+			final float velocityY = mGesture.getVelocityY();
+			if (mMetrics != null && mPullStartTime > 0) {
+				mMetrics.onPullGesture(SystemClock.uptimeMillis()
+						- mPullStartTime);
+			}
+			mPullStartTime = 0;
+			if (getFirstVisiblePosition() == 0) {
+				// invoke refresh
+				int height = getHeaderVisibleHeight();
+				if (mEnablePullRefresh
+						&& !mPullRefreshing
+						&& (height > mHeaderHeight || height > mHeaderHeight / 2
+								&& velocityY > mFlickVelocity)) {
+					mPullRefreshing = true;
+					mHeader.setState(ListViewPlusHeader.STATE_REFRESHING);
+					refresh();
+				} else if (!mEnablePullRefresh
+						&& canLoadPrevious()
+						&& (height > mHeaderHeight || height > mHeaderHeight / 2
+								&& velocityY > mFlickVelocity)) {
+					mPreviousFromPull = true;
+					mHeader.setState(ListViewPlusHeader.STATE_REFRESHING);
+					startLoadPrevious();
+				}
+
+				// the header keeps moving the way the finger left it
+				resetHeaderHeight(velocityY / OFFSET_RADIO);
+
+			} else if (getLastVisiblePosition() == mTotalItemCount - 1) {
+				// invoke load more.
+				int margin = mFooterView == null ? 0 : mFooterView
+						.getBottomMargin();
+				if (mEnablePullLoad
+						&& !mPullLoading
+						&& (margin > PULL_LOAD_MORE_DELTA || margin > PULL_LOAD_MORE_DELTA / 2
+								&& -velocityY > mFlickVelocity)) {
+					startLoadMore();
+				}
+				resetFooterHeight(-velocityY / OFFSET_RADIO);
+			}
+			break;
+
+		case PullGestureTracker.EVENT_CANCEL:
+			// a parent took the gesture, e.g. a pager: spring back without
+			// starting a refresh or load more.
+			mPullStartTime = 0;
+			if (!isHeaderBusy() && getHeaderVisibleHeight() > 0) {
+				mHeader.setState(ListViewPlusHeader.STATE_NORMAL);
+			}
+			resetHeaderHeight();
+			if (mFooterView != null && !mPullLoading) {
+				mFooterView.setState(ListViewPlusFooter.STATE_NORMAL);
+			}
+			resetFooterHeight(0);
+			break;
+
+		default:
+			break;
+		}
+		ListViewPlusTrace.end();
+		return super.onTouchEvent(ev);
+	}
+
+	/**
+	 * Applies the header/footer spring values.
+	 */
+	private class SpringCallback implements SpringAnimator.Target,
+			SpringAnimator.FrameListener {
+		@Override
+		public void onSpringUpdate(SpringAnimator spring, int value) {
+			if (spring == mHeaderSpring) {
+				if (mLayoutFreePull) {
+					// the rows move with the offset, so the whole list redraws.
+					mPullOffset = value;
+					invalidate();
+				} else {
+					mHeader.setVisibleHeight(value);
+				}
+			} else {
+				// layout params change invalidates the footer by itself.
+				mFooterView.setBottomMargin(value);
+			}
+			invokeOnScrolling();
+		}
+
+		@Override
+		public void onSpringFrame(SpringAnimator spring,
+				long frameIntervalNanos, long workNanos) {
+			int which = spring == mHeaderSpring ? REFRESH : LOAD;
+			if (mFrameListener != null) {
+				mFrameListener.onAnimationFrame(which, frameIntervalNanos,
+						workNanos);
+			}
+			if (mMetrics != null && frameIntervalNanos > FRAME_BUDGET_NANOS) {
+				mMetrics.onSlowFrame(which, frameIntervalNanos, workNanos);
+			}
+		}
+	}
+
+	/**
+	 * Set who saves and restores the loaded pages with the scroll position,
+	 * done by {@link PagedLoader}.
+	 * 
+	 * @param listener
+	 */
+	public void setPagingStateListener(PagingStateListener listener) {
+		mPagingStateListener = listener;
+	}
+
+	@Override
+	public Parcelable onSaveInstanceState() {
+		SavedState ss = new SavedState(super.onSaveInstanceState());
+		if (mPendingAnchorPosition >= 0) {
+			// restored but the data is not back yet, keep the old anchor.
+			ss.anchorId = mPendingAnchorId;
+			ss.anchorPosition = mPendingAnchorPosition;
+			ss.anchorOffset = mPendingAnchorOffset;
+		} else if (mAdapter != null) {
+			// the first item row, below the header
+			int first = getFirstVisiblePosition();
+			int index = Math.max(0, getHeaderViewsCount() - first);
+			int position = first + index - getHeaderViewsCount();
+			if (index < getChildCount() && position < mAdapter.getCount()) {
+				ss.anchorPosition = position;
+				ss.anchorOffset = getChildAt(index).getTop() - getPaddingTop();
+				if (mAdapter.hasStableIds()) {
+					ss.anchorId = mAdapter.getItemId(position);
+				}
+			}
+		}
+		if (mPagingStateListener != null && ss.anchorPosition >= 0) {
+			ss.pagingState = new Bundle();
+			mPagingStateListener.onSavePagingState(ss.pagingState,
+					ss.anchorPosition);
+		}
+		return ss;
+	}
+
+	@Override
+	public void onRestoreInstanceState(Parcelable state) {
+		if (!(state instanceof SavedState)) {
+			super.onRestoreInstanceState(state);
+			return;
+		}
+		SavedState ss = (SavedState) state;
+		super.onRestoreInstanceState(ss.getSuperState());
+		if (ss.anchorPosition < 0)
+			return;
+		mPendingAnchorId = ss.anchorId;
+		mPendingAnchorPosition = ss.anchorPosition;
+		mPendingAnchorOffset = ss.anchorOffset;
+		if (mPagingStateListener != null && ss.pagingState != null
+				&& !ss.pagingState.isEmpty()) {
+			// it calls restoreAnchor once the pages are loaded.
+			mPagingStateListener.onRestorePagingState(ss.pagingState);
+		} else if (mAdapter != null && mAdapter.getCount() > 0) {
+			restoreAnchor(mPendingAnchorPosition);
 		}
 	}
 
-	private void startLoadMore() {
-		mPullLoading = true;
-		mFooterView.setState(ListViewPlusFooter.STATE_LOADING);
-		loadMore();
+	/**
+	 * Scroll back to the row that was on top when the state was saved, at the
+	 * same pixel offset. Call it once the data is in the adapter, after a
+	 * restore that didn't bring the data back by itself. The row is found by
+	 * its stable id, searching outwards from the hint. If the adapter is still
+	 * empty, or a {@link #submitSnapshot(List)} is still diffing, it is done
+	 * once the data is there.
+	 * 
+	 * @param positionHint
+	 *            where the row is expected in the adapter
+	 * @return false if there is nothing to restore or no data yet
+	 */
+	public boolean restoreAnchor(int positionHint) {
+		if (mPendingAnchorPosition < 0 || mAdapter == null)
+			return false;
+		int count = mAdapter.getCount();
+		if (count == 0 || mSnapshotPending) {
+			// the adapter doesn't hold the restored data yet
+			mPendingAnchorHint = Math.max(0, positionHint);
+			return false;
+		}
+		int position = Math.max(0, Math.min(positionHint, count - 1));
+		if (mPendingAnchorId != AdapterView.INVALID_ROW_ID
+				&& mAdapter.hasStableIds()) {
+			int found = findItemId(mPendingAnchorId, position, count);
+			if (found >= 0) {
+				position = found;
+			}
+		}
+		setSelectionFromTop(position + getHeaderViewsCount(),
+				mPendingAnchorOffset);
+		mPendingAnchorPosition = -1;
+		mPendingAnchorHint = -1;
+		mPendingAnchorId = AdapterView.INVALID_ROW_ID;
+		return true;
 	}
 
-	@Override
-	public boolean onTouchEvent(MotionEvent ev) {
-		if (mLastY == -1) {
-			mLastY = ev.getRawY();
+	private int findItemId(long id, int start, int count) {
+		for (int d = 0; d < count; d++) {
+			int before = start - d;
+			int after = start + d;
+			if (before < 0 && after >= count)
+				break;
+			if (after < count && mAdapter.getItemId(after) == id)
+				return after;
+			if (before >= 0 && d > 0 && mAdapter.getItemId(before) == id)
+				return before;
 		}
+		return -1;
+	}
 
-		switch (ev.getAction()) {
-		case MotionEvent.ACTION_DOWN:
-			mLastY = ev.getRawY();
-			break;
+	/**
+	 * The row on top and the paging state, kept across configuration changes
+	 * and process death.
+	 */
+	static class SavedState extends BaseSavedState {
+		long anchorId = AdapterView.INVALID_ROW_ID;
+		int anchorPosition = -1;
+		int anchorOffset;
+		Bundle pagingState;
+
+		SavedState(Parcelable superState) {
+			super(superState);
+		}
 
-		case MotionEvent.ACTION_MOVE:
-			final float deltaY = ev.getRawY() - mLastY;
-			mLastY = ev.getRawY();
+		private SavedState(Parcel in) {
+			super(in);
+			anchorId = in.readLong();
+			anchorPosition = in.readInt();
+			anchorOffset = in.readInt();
+			pagingState = in.readBundle(SavedState.class.getClassLoader());
+		}
 
-			if (getFirstVisiblePosition() == 0
-					&& (mHeader.getVisibleHeight() > 0 || deltaY > 0)) {
-				// the first item is showing, header has shown or pull down.
-				updateHeaderHeight(deltaY / OFFSET_RADIO);
-				invokeOnScrolling();
+		@Override
+		public void writeToParcel(Parcel out, int flags) {
+			super.writeToParcel(out, flags);
+			out.writeLong(anchorId);
+			out.writeInt(anchorPosition);
+			out.writeInt(anchorOffset);
+			out.writeBundle(pagingState);
+		}
 
-			} else if (getLastVisiblePosition() == mTotalItemCount - 1
-					&& (mFooterView.getBottomMargin() > 0 || deltaY < 0)) {
-				// last item, already pulled up or want to pull up.
-				updateFooterHeight(-deltaY / OFFSET_RADIO);
+		public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+			@Override
+			public SavedState createFromParcel(Parcel in) {
+				return new SavedState(in);
 			}
-			break;
 
-		default:
-			// reset
-			mLastY = -1;
-			if (getFirstVisiblePosition() == 0) {
-				// invoke refresh
-				if (mEnablePullRefresh
-						&& mHeader.getVisibleHeight() > mHeaderHeight) {
-					mPullRefreshing = true;
-					mHeader.setState(ListViewPlusHeader.STATE_REFRESHING);
-					refresh();
-				}
+			@Override
+			public SavedState[] newArray(int size) {
+				return new SavedState[size];
+			}
+		};
+	}
 
-				resetHeaderHeight();
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		if (mPreInflater != null) {
+			mPreInflater.attach(this);
+		}
+		if (mStickyHeader != null) {
+			mStickyHeader.attach();
+		}
+	}
 
-			} else if (getLastVisiblePosition() == mTotalItemCount - 1) {
-				// invoke load more.
-				if (mEnablePullLoad
-						&& mFooterView.getBottomMargin() > PULL_LOAD_MORE_DELTA) {
-					startLoadMore();
-				}
-				resetFooterHeight();
-			}
-			break;
+	@Override
+	protected void onDetachedFromWindow() {
+		if (mPreInflater != null) {
+			// a shared pre-inflater must not keep a list that is gone
+			mPreInflater.detach(this);
 		}
-		return super.onTouchEvent(ev);
+		if (mStickyHeader != null) {
+			mStickyHeader.detach();
+		}
+		if (!mKeptRows.isEmpty()) {
+			releaseKeptRows();
+		}
+		mGesture.recycle();
+		removeCallbacks(mTimeTicker);
+		mTimeTickerScheduled = false;
+		// no frames come while detached, finish where the springs were going
+		// so the rows aren't left shifted.
+		mHeaderSpring.end();
+		mFooterSpring.end();
+		super.onDetachedFromWindow();
 	}
 
 	@Override
-	public void computeScroll() {
-		if (mScroller.computeScrollOffset()) {
-			if (mScrollBack == SCROLL_BACK_HEADER) {
-				mHeader.setVisibleHeight(mScroller.getCurrY());
-			} else {
-				mFooterView.setBottomMargin(mScroller.getCurrY());
+	protected void dispatchDraw(Canvas canvas) {
+		if (mPullOffset <= 0) {
+			super.dispatchDraw(canvas);
+			if (mStickyHeader != null) {
+				mStickyHeader.draw(canvas);
 			}
+			return;
+		}
 
-			postInvalidate();
-			invokeOnScrolling();
+		// shift the rows down instead of growing the header.
+		int saveCount = canvas.save();
+		canvas.translate(0, mPullOffset);
+		super.dispatchDraw(canvas);
+		if (mStickyHeader != null) {
+			// pinned to the rows, it moves down with them
+			mStickyHeader.draw(canvas);
 		}
+		canvas.restoreToCount(saveCount);
+
+		if (getFirstVisiblePosition() != 0 || mHeader.getVisibleHeight() > 0)
+			return;
 
-		super.computeScroll();
+		// the header row is collapsed, draw its content bottom aligned into
+		// the gap just like the layout driven header would show it.
+		mHeader.layoutCollapsedContent();
+		int top = mHeader.getTop();
+		saveCount = canvas.save();
+		canvas.clipRect(0, top, getWidth(), top + mPullOffset);
+		canvas.translate(mHeaderContent.getLeft(), top + mPullOffset
+				- mHeaderContent.getHeight());
+		mHeaderContent.draw(canvas);
+		canvas.restoreToCount(saveCount);
 	}
 
 	@Override
@@ -424,13 +1704,18 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 
 	@Override
 	public void onScrollStateChanged(AbsListView view, int scrollState) {
+		mScrollState = scrollState;
+		if (scrollState == SCROLL_STATE_IDLE) {
+			mItemVelocity = 0;
+			updateFastScrolling();
+		}
 		if (mScrollListener != null) {
 			mScrollListener.onScrollStateChanged(view, scrollState);
 		}
 
 		if (scrollState == OnScrollListener.SCROLL_STATE_IDLE) {
 			if (mEnableAutoLoad && getLastVisiblePosition() == getCount() - 1) {
-				startLoadMore();
+				autoLoadMore();
 			}
 		}
 	}
@@ -444,15 +1729,270 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 			mScrollListener.onScroll(view, firstVisibleItem, visibleItemCount,
 					totalItemCount);
 		}
-		if (mFooterView != null) {
-			if (totalItemCount < minItemCount + 2) {// 如果ListView中只包含头布局和尾布局（及ListView的adapter没有数据），则不显示脚布局文件
-				this.removeFooterView(mFooterLayout);
-			} else {
-				if(this.getFooterViewsCount()<1)this.addFooterView(mFooterLayout);
+		ListViewPlusTrace.begin("ListViewPlus#onScroll");
+		updateFooterVisibility(totalItemCount);
+		trackScrollVelocity(firstVisibleItem);
+		if (mStickyHeader != null) {
+			mStickyHeader.update();
+		}
+		if (visibleItemCount > 0) {
+			updatePageWindow(firstVisibleItem, visibleItemCount,
+					totalItemCount);
+		}
+		prefetchIfNeeded(firstVisibleItem, visibleItemCount, totalItemCount);
+		loadPreviousIfNeeded(firstVisibleItem);
+		ListViewPlusTrace.end();
+	}
+
+	/**
+	 * Fire load previous when a scroll up comes within the distance of the
+	 * top. The header is not involved.
+	 */
+	private void loadPreviousIfNeeded(int firstVisibleItem) {
+		if (mScrollState == SCROLL_STATE_IDLE || mItemVelocity >= 0
+				|| !canLoadPrevious())
+			return;
+		if (firstVisibleItem - getHeaderViewsCount() < mPreviousDistance) {
+			startLoadPrevious();
+		}
+	}
+
+	private boolean canLoadPrevious() {
+		return mEnableLoadPrevious && mPreviousListener != null
+				&& !mLoadingPrevious && !mPullRefreshing && mAdapter != null
+				&& mAdapter.getCount() > 0 && !isFiltering();
+	}
+
+	/**
+	 * @return true if the adapter shows filtered items, load more and load
+	 *         previous are off meanwhile
+	 */
+	public boolean isFiltering() {
+		return mAdapter instanceof FilterableAdapter
+				&& ((FilterableAdapter) mAdapter).isFiltering();
+	}
+
+	private void startLoadPrevious() {
+		mLoadingPrevious = true;
+		mPreviousToken = nextOperationToken();
+		mPreviousListener.onLoadPrevious();
+	}
+
+	/**
+	 * Move the selection down by the prepended rows, so the first visible
+	 * item row stays where it is on screen.
+	 */
+	private void keepAnchor(int prependedCount) {
+		int first = getFirstVisiblePosition();
+		// skip the header, anchor on the first item row
+		int index = Math.max(0, getHeaderViewsCount() - first);
+		if (index >= getChildCount())
+			return;
+		View anchor = getChildAt(index);
+		setSelectionFromTop(first + index + prependedCount, anchor.getTop()
+				- getPaddingTop());
+		keepRows();
+	}
+
+	/**
+	 * Mark the rows on screen as having transient state until the next
+	 * layout, before a data set change that moves items. With stable ids the
+	 * ListView then keeps them by item id instead of by position, so every
+	 * row gets its own view back at its new position, and an adapter that
+	 * skips an unchanged item, like {@link ListViewPlusAdapter}, only binds
+	 * the new and changed ones. Rows are only kept by id from KitKat on.
+	 */
+	@TargetApi(Build.VERSION_CODES.KITKAT)
+	private void keepRows() {
+		ListAdapter adapter = getAdapter();
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT
+				|| adapter == null || !adapter.hasStableIds())
+			return;
+		for (int i = 0, n = getChildCount(); i < n; i++) {
+			View child = getChildAt(i);
+			child.setHasTransientState(true);
+			mKeptRows.add(child);
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.KITKAT)
+	private void releaseKeptRows() {
+		for (int i = 0, n = mKeptRows.size(); i < n; i++) {
+			mKeptRows.get(i).setHasTransientState(false);
+		}
+		mKeptRows.clear();
+	}
+
+	@Override
+	protected void layoutChildren() {
+		super.layoutChildren();
+		if (!mKeptRows.isEmpty()) {
+			releaseKeptRows();
+		}
+	}
+
+	private void trackScrollVelocity(int firstVisibleItem) {
+		long now = SystemClock.uptimeMillis();
+		if (mScrollState != SCROLL_STATE_IDLE && mLastScrollTime > 0
+				&& now > mLastScrollTime) {
+			float velocity = (float) (firstVisibleItem - mLastFirstVisible)
+					/ (now - mLastScrollTime);
+			mItemVelocity += (velocity - mItemVelocity) * SMOOTHING;
+		}
+		mLastFirstVisible = firstVisibleItem;
+		mLastScrollTime = now;
+		updateFastScrolling();
+	}
+
+	private void updateFastScrolling() {
+		float speed = Math.abs(mItemVelocity) * 1000;
+		boolean fast;
+		if (mScrollState == SCROLL_STATE_IDLE) {
+			fast = false;
+		} else if (mFastScrolling) {
+			// fall back at half the speed, so a steady fling doesn't flicker
+			fast = speed > mFastScrollVelocity / 2;
+		} else {
+			fast = speed > mFastScrollVelocity;
+		}
+		if (fast == mFastScrolling)
+			return;
+		mFastScrolling = fast;
+		if (!fast) {
+			bindPlaceholders();
+			// the page store may have held its loads back
+			updatePageWindow(getFirstVisiblePosition(), getChildCount(),
+					getCount());
+		}
+	}
+
+	private void updatePageWindow(int firstVisibleItem, int visibleItemCount,
+			int totalItemCount) {
+		if (mPageStore == null)
+			return;
+		int headerCount = getHeaderViewsCount();
+		int last = Math.min(firstVisibleItem + visibleItemCount,
+				totalItemCount - getFooterViewsCount()) - 1;
+		mPageStore.onVisibleRangeChanged(
+				Math.max(0, firstVisibleItem - headerCount), last - headerCount);
+	}
+
+	/**
+	 * Give the visible placeholder rows of a {@link DeferredBindAdapter}
+	 * their full bind.
+	 */
+	private void bindPlaceholders() {
+		if (!(mAdapter instanceof DeferredBindAdapter))
+			return;
+		DeferredBindAdapter adapter = (DeferredBindAdapter) mAdapter;
+		int position = getFirstVisiblePosition() - getHeaderViewsCount();
+		for (int i = 0, n = getChildCount(); i < n; i++, position++) {
+			if (position < 0 || position >= adapter.getCount())
+				continue;
+			View child = getChildAt(i);
+			if (adapter.isPlaceholder(child)) {
+				adapter.getView(position, child, this);
 			}
 		}
 	}
+
+	private void prefetchIfNeeded(int firstVisibleItem, int visibleItemCount,
+			int totalItemCount) {
+		if (!mEnableAutoLoad || !mEnablePullLoad || !mFooterShown
+				|| mScrollState == SCROLL_STATE_IDLE
+				|| mItemVelocity < 0 || totalItemCount == mPrefetchCount)
+			return;
+		int distance = mPrefetchScreens > 0 ? (int) (mPrefetchScreens
+				* visibleItemCount) : mPrefetchItems;
+		if (distance <= 0)
+			return;
+		if (mItemVelocity > 0) {
+			// items that will pass by while the next page loads
+			distance += (int) (mItemVelocity * mLoadLatency);
+		}
+		int remaining = totalItemCount - getFooterViewsCount()
+				- (firstVisibleItem + visibleItemCount);
+		if (remaining <= distance) {
+			mPrefetchCount = totalItemCount;
+			autoLoadMore();
+		}
+	}
+
+	/**
+	 * Load more triggered by scrolling rather than by the user. Suppressed
+	 * while a load is running.
+	 */
+	private void autoLoadMore() {
+		boolean fire = !mPullLoading && !mPullRefreshing && mEnablePullLoad
+				&& !isFiltering();
+		if (mMetrics != null) {
+			mMetrics.onAutoLoad(fire);
+		}
+		if (fire) {
+			startLoadMore();
+		}
+	}
+
+	/**
+	 * 如果ListView中只包含头布局和尾布局（及ListView的adapter没有足够的数据），则不显示脚布局。
+	 * Only the footer content visibility is toggled, the footer itself stays
+	 * in the adapter.
+	 */
+	private void updateFooterVisibility(int totalItemCount) {
+		if (!mIsFooterReady)
+			return;
+		int itemCount = totalItemCount - getHeaderViewsCount()
+				- getFooterViewsCount();
+		// nothing to load more while filtering
+		boolean show = itemCount >= minItemCount && !isFiltering();
+		if (show == mFooterShown)
+			return;
+		mFooterShown = show;
+		if (mFooterView == null)
+			return;
+		if (!show) {
+			mFooterSpring.cancel();
+			mFooterView.setBottomMargin(0);
+		}
+		mFooterView.setVisibility(show ? View.VISIBLE : View.GONE);
+	}
+
+	private int nextOperationToken() {
+		if (++mOperationGeneration == 0) {
+			mOperationGeneration = 1;
+		}
+		return mOperationGeneration;
+	}
+
+	/**
+	 * A refresh supersedes the running load more, its completion will be
+	 * ignored.
+	 */
 	private void refresh() {
+		// the list starts over, a restore still waiting is dropped.
+		mPendingAnchorPosition = -1;
+		mPendingAnchorHint = -1;
+		if (mLoadingPrevious) {
+			// the refresh replaces the list, nothing to prepend to.
+			mLoadingPrevious = false;
+			mPreviousToken = 0;
+			mPreviousFromPull = false;
+		}
+		if (mPullLoading) {
+			mPullLoading = false;
+			mLoadToken = 0;
+			if (mFooterView != null) {
+				mFooterView.setState(ListViewPlusFooter.STATE_NORMAL);
+			}
+		}
+		mRefreshToken = nextOperationToken();
+		if (mPreInflater != null) {
+			// use the wait for the data to get rows ready.
+			mPreInflater.warm();
+		}
+		if (mMetrics != null) {
+			mRefreshStartTime = SystemClock.uptimeMillis();
+		}
 		if (mEnablePullRefresh && null != mListener) {
 			mListener.onRefresh();
 		}
@@ -472,6 +2012,100 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 		public void onXScrolling(View view);
 	}
 
+	/**
+	 * 保存和恢复已加载的分页，见
+	 * {@link ListViewPlus#setPagingStateListener(PagingStateListener)}
+	 *
+	 * <p>
+	 * Called with the list's own state: saves the keys of the pages loaded
+	 * around the row on top, and loads them again after a restore so the
+	 * list comes back at the same scroll position.
+	 */
+	public interface PagingStateListener {
+		/**
+		 * Save what is needed to load the pages around the anchor again.
+		 * 
+		 * @param anchorPosition
+		 *            adapter position of the row on top
+		 */
+		public void onSavePagingState(Bundle outState, int anchorPosition);
+
+		/**
+		 * Load the pages saved, then call
+		 * {@link ListViewPlus#restoreAnchor(int)}.
+		 */
+		public void onRestorePagingState(Bundle state);
+	}
+
+	/**
+	 * 加载更早的内容，见{@link ListViewPlus#setLoadPreviousEnable(boolean)}
+	 */
+	public interface OnLoadPreviousListener {
+		/**
+		 * Load the content before the first item. Read
+		 * {@link ListViewPlus#getLoadPreviousToken()} here and complete with
+		 * {@link ListViewPlus#stopLoadPrevious(int, int)}.
+		 */
+		public void onLoadPrevious();
+	}
+
+	/**
+	 * Reports every frame of the header/footer scroll back animation.
+	 */
+	public interface OnAnimationFrameListener {
+		/**
+		 * @param which
+		 *            {@link #REFRESH} for the header, {@link #LOAD} for the
+		 *            footer
+		 * @param frameIntervalNanos
+		 *            time since the previous animation frame, 0 on the first
+		 * @param workNanos
+		 *            time spent applying this frame
+		 */
+		public void onAnimationFrame(int which, long frameIntervalNanos,
+				long workNanos);
+	}
+
+	/**
+	 * Performance metrics of the widget, see
+	 * {@link ListViewPlus#setMetricsListener(MetricsListener)}. Called on the
+	 * main thread, implementations should only record.
+	 */
+	public interface MetricsListener {
+		/**
+		 * Time from the refresh callback to {@link #stopRefresh()}.
+		 */
+		public void onRefreshLatency(long millis);
+
+		/**
+		 * Time from the load more callback to {@link #stopLoadMore()}.
+		 */
+		public void onLoadMoreLatency(long millis);
+
+		/**
+		 * An auto load (idle at the bottom or prefetch) was triggered.
+		 * 
+		 * @param fired
+		 *            false if it was suppressed because a load was running
+		 */
+		public void onAutoLoad(boolean fired);
+
+		/**
+		 * Time the user spent pulling the header or footer.
+		 */
+		public void onPullGesture(long millis);
+
+		/**
+		 * A header or footer animation frame came later than its budget.
+		 * 
+		 * @param which
+		 *            {@link #REFRESH} for the header, {@link #LOAD} for the
+		 *            footer
+		 */
+		public void onSlowFrame(int which, long frameIntervalNanos,
+				long workNanos);
+	}
+
 	/**
 	 * 实现这个接口可以，获取下拉加载上拉刷新事件
 	 */
@@ -481,11 +2115,17 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 		public void onLoadMore();
 	}
 
+	private SimpleDateFormat mTimeFormat;
+	private Date mTimeDate;
+
 	public String getCurrentTime() {
-		SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd  HH:mm:ss",
-				Locale.getDefault());
-		String currentTime = sdf.format(new Date());
-		return currentTime;
+		if (mTimeFormat == null) {
+			mTimeFormat = new SimpleDateFormat("yyyy-MM-dd  HH:mm:ss",
+					Locale.getDefault());
+			mTimeDate = new Date();
+		}
+		mTimeDate.setTime(System.currentTimeMillis());
+		return mTimeFormat.format(mTimeDate);
 	}
 
 	/**
@@ -498,8 +2138,6 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 		public final static int STATE_READY = 1;
 		public final static int STATE_LOADING = 2;
 
-		private final int ROTATE_ANIM_DURATION = 180;
-
 		private View mLayout;
 
 		private View mProgressBar;
@@ -508,10 +2146,9 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 
 		// private ImageView mHintImage;
 
-		private Animation mRotateUpAnim;
-		private Animation mRotateDownAnim;
-
 		private int mState = STATE_NORMAL;
+		// draws the content instead of the inflated views when set
+		private PullIndicator mIndicator;
 
 		public ListViewPlusFooter(Context context) {
 			super(context);
@@ -524,6 +2161,14 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 		}
 
 		private void initView(Context context) {
+			mIndicator = mFooterIndicator;
+			if (mIndicator != null) {
+				mLayout = mIndicator.getView();
+				mLayout.setLayoutParams(new LinearLayout.LayoutParams(
+						LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+				addView(mLayout);
+				return;
+			}
 			mLayout = LayoutInflater.from(context).inflate(
 					R.layout.listview_plus_footer, null);
 			mLayout.setLayoutParams(new LinearLayout.LayoutParams(
@@ -535,20 +2180,11 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 			mHintView = (TextView) mLayout
 					.findViewById(R.id.listview_plus_footer_hint_textview);
 			// mHintImage = (ImageView) mLayout.findViewById(R.id.footer_arrow);
-
-			mRotateUpAnim = new RotateAnimation(0.0f, 180.0f,
-					Animation.RELATIVE_TO_SELF, 0.5f,
-					Animation.RELATIVE_TO_SELF, 0.5f);
-			mRotateUpAnim.setDuration(ROTATE_ANIM_DURATION);
-			mRotateUpAnim.setFillAfter(true);
-
-			mRotateDownAnim = new RotateAnimation(180.0f, 0.0f,
-					Animation.RELATIVE_TO_SELF, 0.5f,
-					Animation.RELATIVE_TO_SELF, 0.5f);
-			mRotateDownAnim.setDuration(ROTATE_ANIM_DURATION);
-			mRotateDownAnim.setFillAfter(true);
 		}
 
+		/**
+		 * @return the hint text view, null with an indicator
+		 */
 		public TextView getmHintView() {
 			return mHintView;
 		}
@@ -566,6 +2202,13 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 			if (state == mState)
 				return;
 
+			if (mIndicator != null) {
+				// the states have the same values
+				mIndicator.setState(state);
+				mState = state;
+				return;
+			}
+
 			if (state == STATE_LOADING) {
 				// mHintImage.clearAnimation();
 				// mHintImage.setVisibility(View.INVISIBLE);
@@ -632,6 +2275,10 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 		 * normal status
 		 */
 		public void normal() {
+			if (mIndicator != null) {
+				setState(STATE_NORMAL);
+				return;
+			}
 			mHintView.setVisibility(View.VISIBLE);
 			mProgressBar.setVisibility(View.GONE);
 		}
@@ -640,6 +2287,10 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 		 * loading status
 		 */
 		public void loading() {
+			if (mIndicator != null) {
+				setState(STATE_LOADING);
+				return;
+			}
 			mHintView.setVisibility(View.GONE);
 			mProgressBar.setVisibility(View.VISIBLE);
 		}
@@ -671,11 +2322,15 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 	 * @author JPH
 	 */
 	class ListViewPlusHeader extends LinearLayout {
-		private LinearLayout mContainer;
+		// the inflated content or the indicator view
+		private View mContainer;
+		private PullIndicator mIndicator;
 		private ImageView mArrowImageView;
 		private ProgressBar mProgressBar;
 		private TextView mHintTextView;
 		private int mState = STATE_NORMAL;
+		// a layout request of the content held back during a layout free pull
+		private boolean mContentLayoutPending;
 		private Animation mRotateUpAnim;
 		private Animation mRotateDownAnim;
 		private final int ROTATE_ANIM_DURATION = 180;
@@ -698,33 +2353,86 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 		}
 
 		private void initView(Context context) {
+			// 内容在第一次下拉时才创建
+			setGravity(Gravity.BOTTOM);
+		}
+
+		/**
+		 * Inflate the content, with a visible height of 0.
+		 */
+		void ensureContent() {
+			if (mContainer != null)
+				return;
 			// 初始情况，设置下拉刷新view高度为0
 			LinearLayout.LayoutParams lp = new LinearLayout.LayoutParams(
 					LayoutParams.MATCH_PARENT, 0);
-			mContainer = (LinearLayout) LayoutInflater.from(context).inflate(
+			mIndicator = mHeaderIndicator;
+			if (mIndicator != null) {
+				mContainer = mIndicator.getView();
+				addView(mContainer, lp);
+				return;
+			}
+			mContainer = LayoutInflater.from(getContext()).inflate(
 					R.layout.listview_plus_header, null);
 			addView(mContainer, lp);
-			setGravity(Gravity.BOTTOM);
 
 			mArrowImageView = (ImageView) findViewById(R.id.listview_plus_header_arrow);
 			mHintTextView = (TextView) findViewById(R.id.listview_plus_header_hint_textview);
 			mProgressBar = (ProgressBar) findViewById(R.id.listview_plus_header_progressbar);
+		}
+
+		/**
+		 * Drop the content, it is created again by the next
+		 * {@link #ensureContent()}.
+		 */
+		void removeContent() {
+			if (mContainer == null)
+				return;
+			if (mArrowImageView != null) {
+				mArrowImageView.clearAnimation();
+			}
+			removeView(mContainer);
+			mContainer = null;
+			mIndicator = null;
+			mArrowImageView = null;
+			mHintTextView = null;
+			mProgressBar = null;
+			mState = STATE_NORMAL;
+		}
+
+		private Animation getRotateUpAnim() {
+			if (mRotateUpAnim == null) {
+				mRotateUpAnim = new RotateAnimation(0.0f, -180.0f,
+						Animation.RELATIVE_TO_SELF, 0.5f,
+						Animation.RELATIVE_TO_SELF, 0.5f);
+				mRotateUpAnim.setDuration(ROTATE_ANIM_DURATION);
+				mRotateUpAnim.setFillAfter(true);
+			}
+			return mRotateUpAnim;
+		}
 
-			mRotateUpAnim = new RotateAnimation(0.0f, -180.0f,
-					Animation.RELATIVE_TO_SELF, 0.5f,
-					Animation.RELATIVE_TO_SELF, 0.5f);
-			mRotateUpAnim.setDuration(ROTATE_ANIM_DURATION);
-			mRotateUpAnim.setFillAfter(true);
-			mRotateDownAnim = new RotateAnimation(-180.0f, 0.0f,
-					Animation.RELATIVE_TO_SELF, 0.5f,
-					Animation.RELATIVE_TO_SELF, 0.5f);
-			mRotateDownAnim.setDuration(ROTATE_ANIM_DURATION);
-			mRotateDownAnim.setFillAfter(true);
+		private Animation getRotateDownAnim() {
+			if (mRotateDownAnim == null) {
+				mRotateDownAnim = new RotateAnimation(-180.0f, 0.0f,
+						Animation.RELATIVE_TO_SELF, 0.5f,
+						Animation.RELATIVE_TO_SELF, 0.5f);
+				mRotateDownAnim.setDuration(ROTATE_ANIM_DURATION);
+				mRotateDownAnim.setFillAfter(true);
+			}
+			return mRotateDownAnim;
 		}
 
 		public void setState(int state) {
 			if (state == mState)
 				return;
+			ensureContent();
+
+			if (mIndicator != null) {
+				// the states have the same values
+				mIndicator.setState(state);
+				mState = state;
+				return;
+			}
 
 			if (state == STATE_REFRESHING) { // 显示进度
 				mArrowImageView.clearAnimation();
@@ -738,7 +2446,7 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 			switch (state) {
 			case STATE_NORMAL:
 				if (mState == STATE_READY) {
-					mArrowImageView.startAnimation(mRotateDownAnim);
+					mArrowImageView.startAnimation(getRotateDownAnim());
 				}
 				if (mState == STATE_REFRESHING) {
 					mArrowImageView.clearAnimation();
@@ -749,7 +2457,7 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 			case STATE_READY:
 				if (mState != STATE_READY) {
 					mArrowImageView.clearAnimation();
-					mArrowImageView.startAnimation(mRotateUpAnim);
+					mArrowImageView.startAnimation(getRotateUpAnim());
 					mHintTextView
 							.setText(R.string.listview_plus_header_hint_ready);
 				}
@@ -767,6 +2475,11 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 		public void setVisibleHeight(int height) {
 			if (height < 0)
 				height = 0;
+			if (mContainer == null) {
+				if (height == 0)
+					return;
+				ensureContent();
+			}
 			LinearLayout.LayoutParams lp = (LinearLayout.LayoutParams) mContainer
 					.getLayoutParams();
 			lp.height = height;
@@ -774,7 +2487,46 @@ public class ListViewPlus extends ListView implements OnScrollListener {
 		}
 
 		public int getVisibleHeight() {
-			return mContainer.getLayoutParams().height;
+			if (mContainer == null)
+				return 0;
+			// null while the content is being added
+			ViewGroup.LayoutParams lp = mContainer.getLayoutParams();
+			return lp == null ? 0 : lp.height;
+		}
+
+		/**
+		 * While a layout free pull draws the collapsed content, a hint or
+		 * time text change only needs the content laid out again, not the
+		 * list. That happens in {@link #layoutCollapsedContent()}, the list
+		 * is laid out once when the header height is committed.
+		 */
+		@Override
+		public void requestLayout() {
+			if (mLayoutFreePull && mContainer != null
+					&& getVisibleHeight() == 0) {
+				mContentLayoutPending = true;
+				return;
+			}
+			super.requestLayout();
+		}
+
+		/**
+		 * Lay the collapsed content out in place, if it asked for it, so it
+		 * can be drawn into the pull gap.
+		 */
+		void layoutCollapsedContent() {
+			if (!mContentLayoutPending || mContainer == null)
+				return;
+			mContentLayoutPending = false;
+			int left = getPaddingLeft();
+			int top = getPaddingTop();
+			int width = Math.max(0, getWidth() - left - getPaddingRight());
+			mContainer.measure(
+					MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+					MeasureSpec.makeMeasureSpec(getVisibleHeight(),
+							MeasureSpec.EXACTLY));
+			mContainer.layout(left, top, left + mContainer.getMeasuredWidth(),
+					top + mContainer.getMeasuredHeight());
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,450 @@
+package com.jph.view;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.BaseAdapter;
+
+/**
+ * ListViewPlus的Adapter基类，带ViewHolder和稳定ID
+ *
+ * <p>
+ * Rows are created through {@link #onCreateViewHolder(ViewGroup, int)} once
+ * per view type and bound through
+ * {@link #onBindViewHolder(ViewHolder, Object, int)}. Item ids come from
+ * {@link #getItemKey(Object)}, so {@link #hasStableIds()} is true and
+ * ListView keeps checked and transient state across data changes; the
+ * header and footer wrapping of {@link ListViewPlus#setAdapter} passes them
+ * through. After a {@link ListViewPlus#submitSnapshot(List)} or a filter
+ * change, a row that already shows an item with the same key and content is
+ * not bound again. {@link #notifyDataSetChanged()} binds every row again,
+ * call it when a bind depends on more than the item, e.g. on its position or
+ * on adapter state.
+ *
+ * <p>
+ * The item of a position may be null, e.g. while its page of a
+ * {@link SparsePageStore} or {@link WindowedPageStore} is loading; its row is
+ * bound as a placeholder and gets an id of its own from a range reserved
+ * for placeholders, see {@link #getPlaceholderId(int)}.
+ *
+ * <p>
+ * Rows are taken from the {@link ViewPreInflater} of the list when one is
+ * registered for the view type, see {@link #inflate(int, int, ViewGroup)}.
+ * The adapter also works with {@link ListViewPlus#submitSnapshot(List)} and
+ * with deferred binding, see {@link #onBindPlaceholder}.
+ *
+ * <p>
+ * {@link #filter(CharSequence)} shows only the items matching a query. The
+ * items are tested by {@link #matches(Object, CharSequence)} on a
+ * background thread, in chunks submitted one after the other so other loads
+ * on the executor are not held up; the matches are shown as every chunk
+ * completes, and a new query or a data set change stops the running one
+ * after its current item.
+ *
+ * @author JPH
+ */
+public abstract class ListViewPlusAdapter<T, VH extends ListViewPlusAdapter.ViewHolder>
+		extends BaseAdapter implements SnapshotAdapter<T>, DeferredBindAdapter,
+		FilterableAdapter {
+	/**
+	 * The first of the ids reserved for placeholders, just above
+	 * {@link AdapterView#INVALID_ROW_ID}. The range spans
+	 * {@link Integer#MAX_VALUE} ids from here, far below keys made from
+	 * database ids, int hashes or timestamps.
+	 */
+	public final static long PLACEHOLDER_ID_BASE = AdapterView.INVALID_ROW_ID
+			+ 1;
+
+	private final static int FILTER_CHUNK = 500;
+
+	protected final Context mContext;
+	protected final LayoutInflater mInflater;
+	protected List<T> mItems;
+
+	// the query, null when not filtering
+	private String mQuery;
+	// what is shown while filtering, null until the first chunk is done
+	private ArrayList<T> mMatches;
+	private boolean mFilterComplete = true;
+	// the first chunk of a run replaces the matches, the others append
+	private boolean mReplaceMatches;
+	// written on the main thread, read by the chunks to stop early
+	private volatile int mFilterGeneration;
+	private Executor mFilterExecutor;
+	private Handler mHandler;
+	// moved on by notifyDataSetChanged(), rows bound before are bound again
+	private int mBindGeneration;
+
+	/**
+	 * Holds the views of one row. Subclasses add their fields.
+	 */
+	public static class ViewHolder {
+		public final View itemView;
+		int mViewType;
+		// what the row shows, null if not bound or a placeholder
+		Object mItem;
+		int mBindGeneration;
+		boolean mPlaceholder;
+
+		public ViewHolder(View itemView) {
+			this.itemView = itemView;
+		}
+	}
+
+	public ListViewPlusAdapter(Context context) {
+		this(context, new ArrayList<T>());
+	}
+
+	/**
+	 * @param items
+	 *            used directly, not copied
+	 */
+	public ListViewPlusAdapter(Context context, List<T> items) {
+		mContext = context;
+		mInflater = LayoutInflater.from(context);
+		mItems = items;
+	}
+
+	/**
+	 * Create the views of a row of this view type.
+	 */
+	protected abstract VH onCreateViewHolder(ViewGroup parent, int viewType);
+
+	/**
+	 * Show the item in the row.
+	 *
+	 * @param item
+	 *            null if there is no item at this position yet, e.g. its
+	 *            page is loading; show a placeholder then
+	 */
+	protected abstract void onBindViewHolder(VH holder, T item, int position);
+
+	/**
+	 * Called instead of {@link #onBindViewHolder} while the list is fast
+	 * scrolling. Bind only what is cheap and return true; the row gets its
+	 * full bind once the scroll slows down. Returns false by default, which
+	 * binds fully right away. The item is null as in
+	 * {@link #onBindViewHolder}.
+	 */
+	protected boolean onBindPlaceholder(VH holder, T item, int position) {
+		return false;
+	}
+
+	/**
+	 * Inflate a row, from the pre-inflated views of the list if there are
+	 * some for this view type.
+	 */
+	protected View inflate(int layout, int viewType, ViewGroup parent) {
+		if (parent instanceof ListViewPlus) {
+			ViewPreInflater preInflater = ((ListViewPlus) parent)
+					.getPreInflater();
+			if (preInflater != null && preInflater.isRegistered(viewType))
+				return preInflater.obtain(viewType, parent);
+		}
+		return mInflater.inflate(layout, parent, false);
+	}
+
+	/**
+	 * Test an item against the query, on a background thread. Matches the
+	 * {@code toString()} of the item ignoring case by default.
+	 */
+	protected boolean matches(T item, CharSequence query) {
+		String text = String.valueOf(item);
+		String q = query.toString();
+		for (int i = 0, n = text.length() - q.length(); i <= n; i++) {
+			if (text.regionMatches(true, i, q, 0, q.length()))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Run the filters on {@code executor}, e.g. the
+	 * {@link ListViewPlus#getLoaderExecutor()} of the list. Defaults to
+	 * {@link PagedLoader#getDefaultExecutor()}.
+	 */
+	public void setFilterExecutor(Executor executor) {
+		mFilterExecutor = executor;
+	}
+
+	/**
+	 * Show only the items matching {@code query}, or all items again if it
+	 * is null or empty. The current rows stay until the first chunk of
+	 * matches is ready.
+	 */
+	public void filter(CharSequence query) {
+		mFilterGeneration++;
+		if (query == null || query.length() == 0) {
+			if (mQuery == null)
+				return;
+			mQuery = null;
+			mMatches = null;
+			mFilterComplete = true;
+			super.notifyDataSetChanged();
+			return;
+		}
+		mQuery = query.toString();
+		mFilterComplete = false;
+		mReplaceMatches = true;
+		// the chunks read a copy, the list may change meanwhile
+		runFilterChunk(mFilterGeneration, mQuery, mItems.toArray(), 0);
+	}
+
+	@Override
+	public boolean isFiltering() {
+		return mQuery != null;
+	}
+
+	/**
+	 * @return true if every item has been tested against the query
+	 */
+	public boolean isFilterComplete() {
+		return mFilterComplete;
+	}
+
+	private void runFilterChunk(final int generation, final String query,
+			final Object[] items, final int start) {
+		if (mHandler == null) {
+			mHandler = new Handler(Looper.getMainLooper());
+		}
+		if (mFilterExecutor == null) {
+			mFilterExecutor = PagedLoader.getDefaultExecutor();
+		}
+		mFilterExecutor.execute(new Runnable() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public void run() {
+				final int end = Math.min(start + FILTER_CHUNK, items.length);
+				final ArrayList<T> found = new ArrayList<T>();
+				for (int i = start; i < end; i++) {
+					if (generation != mFilterGeneration)
+						return;
+					T item = (T) items[i];
+					if (item != null && matches(item, query)) {
+						found.add(item);
+					}
+				}
+				mHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						onFilterChunk(generation, query, items, end, found);
+					}
+				});
+			}
+		});
+	}
+
+	private void onFilterChunk(int generation, String query, Object[] items,
+			int end, ArrayList<T> found) {
+		if (generation != mFilterGeneration)
+			return;
+		boolean complete = end == items.length;
+		if (mReplaceMatches) {
+			mReplaceMatches = false;
+			mMatches = found;
+			super.notifyDataSetChanged();
+		} else if (!found.isEmpty()) {
+			mMatches.addAll(found);
+			super.notifyDataSetChanged();
+		}
+		mFilterComplete = complete;
+		if (!complete) {
+			runFilterChunk(generation, query, items, end);
+		}
+	}
+
+	/**
+	 * Every row is bound again. While filtering, the changed items are
+	 * filtered again; the matches of the previous run stay shown until the
+	 * first chunk is ready.
+	 */
+	@Override
+	public void notifyDataSetChanged() {
+		mBindGeneration++;
+		if (mQuery != null) {
+			filter(mQuery);
+			if (mMatches != null)
+				return;
+			// no matches yet, the loaded items are still shown
+		}
+		super.notifyDataSetChanged();
+	}
+
+	/**
+	 * Notify that {@code count} items were inserted at the start and the
+	 * others are unchanged, e.g. by a load previous; call it instead of
+	 * {@link #notifyDataSetChanged()} before
+	 * {@link ListViewPlus#stopLoadPrevious(int, int)}. The rows on screen keep
+	 * their views and are not bound again, so a bind must not depend on the
+	 * position.
+	 */
+	public void notifyItemsPrepended(int count) {
+		if (mQuery != null) {
+			// the matches have to be found again
+			notifyDataSetChanged();
+			return;
+		}
+		super.notifyDataSetChanged();
+	}
+
+	/**
+	 * @return the items shown, the matches while filtering
+	 */
+	protected List<T> getShownItems() {
+		return mQuery != null && mMatches != null ? mMatches : mItems;
+	}
+
+	@Override
+	public int getCount() {
+		return getShownItems().size();
+	}
+
+	@Override
+	public T getItem(int position) {
+		return getShownItems().get(position);
+	}
+
+	@Override
+	public long getItemId(int position) {
+		T item = getItem(position);
+		return item == null ? getPlaceholderId(position) : getItemKey(item);
+	}
+
+	/**
+	 * The id of a position without an item, {@link #PLACEHOLDER_ID_BASE}
+	 * plus the position. Item keys must not fall in that range.
+	 */
+	protected long getPlaceholderId(int position) {
+		return PLACEHOLDER_ID_BASE + position;
+	}
+
+	/**
+	 * True, ids are the item keys; a placeholder keeps its id until its item
+	 * arrives.
+	 */
+	@Override
+	public boolean hasStableIds() {
+		return true;
+	}
+
+	@Override
+	public boolean isSameContent(T oldItem, T newItem) {
+		return oldItem.equals(newItem);
+	}
+
+	/**
+	 * @return the rows shown, the matches while filtering
+	 */
+	@Override
+	public List<T> getSnapshot() {
+		return getShownItems();
+	}
+
+	/**
+	 * Replace all items. While filtering the matches are found again by
+	 * the next {@link #notifyDataSetChanged()}.
+	 */
+	@Override
+	public void setSnapshot(List<T> items) {
+		mItems.clear();
+		mItems.addAll(items);
+	}
+
+	/**
+	 * @return the query of the filter, null if not filtering
+	 */
+	String getFilterQuery() {
+		return mQuery;
+	}
+
+	/**
+	 * Filter on the calling thread, used by
+	 * {@link ListViewPlus#submitSnapshot(List)} on its worker.
+	 */
+	List<T> filterNow(List<T> items, String query) {
+		ArrayList<T> matches = new ArrayList<T>();
+		for (int i = 0, n = items.size(); i < n; i++) {
+			T item = items.get(i);
+			if (item != null && matches(item, query)) {
+				matches.add(item);
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Replace all items and the matches shown, found with the current
+	 * query. A running filter is stopped, the matches are complete.
+	 */
+	void setFilteredSnapshot(List<T> items, List<T> matches) {
+		mFilterGeneration++;
+		mItems.clear();
+		mItems.addAll(items);
+		mMatches = new ArrayList<T>(matches);
+		mReplaceMatches = false;
+		mFilterComplete = true;
+	}
+
+	/**
+	 * Notify after a snapshot was put in by {@link #setSnapshot(List)} or
+	 * {@link #setFilteredSnapshot(List, List)}: the items are not filtered
+	 * again and rows already showing their item are not bound again.
+	 */
+	void notifySnapshotChanged() {
+		super.notifyDataSetChanged();
+	}
+
+	@Override
+	public boolean isPlaceholder(View view) {
+		Object tag = view.getTag();
+		return tag instanceof ViewHolder && ((ViewHolder) tag).mPlaceholder;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public final View getView(int position, View convertView, ViewGroup parent) {
+		int viewType = getItemViewType(position);
+		VH holder = null;
+		if (convertView != null && convertView.getTag() instanceof ViewHolder) {
+			holder = (VH) convertView.getTag();
+			if (holder.mViewType != viewType) {
+				holder = null;
+			}
+		}
+		if (holder == null) {
+			holder = onCreateViewHolder(parent, viewType);
+			holder.mViewType = viewType;
+			holder.itemView.setTag(holder);
+		}
+
+		T item = getItem(position);
+		if (item != null && !holder.mPlaceholder && holder.mItem != null
+				&& holder.mBindGeneration == mBindGeneration
+				&& getItemKey((T) holder.mItem) == getItemKey(item)
+				&& isSameContent((T) holder.mItem, item)) {
+			// already showing it
+			return holder.itemView;
+		}
+
+		if (parent instanceof ListViewPlus
+				&& ((ListViewPlus) parent).isFastScrolling()
+				&& onBindPlaceholder(holder, item, position)) {
+			holder.mPlaceholder = true;
+			holder.mItem = null;
+			return holder.itemView;
+		}
+		onBindViewHolder(holder, item, position);
+		holder.mPlaceholder = false;
+		holder.mItem = item;
+		holder.mBindGeneration = mBindGeneration;
+		return holder.itemView;
+	}
+}
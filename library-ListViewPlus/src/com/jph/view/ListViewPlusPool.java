@@ -0,0 +1,89 @@
+package com.jph.view;
+
+import java.util.concurrent.Executor;
+
+import android.content.Context;
+
+/**
+ * 多个ListViewPlus共享的资源池，适合多个标签页的列表
+ *
+ * <p>
+ * Lists attached with {@link ListViewPlus#setPool(ListViewPlusPool)} share
+ * one {@link ViewPreInflater} for their rows and one executor with a fixed
+ * number of threads for their loaders and diffs. Indicators from
+ * {@link #newIndicator} share their paints, texts and shapes too.
+ * Pre-inflated rows are kept for about one screen in total instead of one
+ * screen per list, and no list adds threads. Only pre-inflation is shared:
+ * a row a list has recycled stays in that list's own recycler, which hands
+ * it back as a convert view, so every list still keeps the scrap rows of
+ * its own screen. The lists should show rows of the same layouts. Must be
+ * used on the main thread.
+ *
+ * @author JPH
+ */
+public class ListViewPlusPool {
+	private final Context mContext;
+	private final Executor mExecutor;
+	private final ViewPreInflater mPreInflater;
+	private FlatPullIndicator.Style mHeaderStyle;
+	private FlatPullIndicator.Style mFooterStyle;
+
+	/**
+	 * A pool running loads on {@link PagedLoader#getDefaultExecutor()}.
+	 */
+	public ListViewPlusPool(Context context) {
+		this(context, PagedLoader.getDefaultExecutor());
+	}
+
+	/**
+	 * @param executor
+	 *            runs the loads of every attached list, should have a fixed
+	 *            number of threads
+	 */
+	public ListViewPlusPool(Context context, Executor executor) {
+		mContext = context;
+		mExecutor = executor;
+		mPreInflater = new ViewPreInflater(context);
+	}
+
+	/**
+	 * The shared pre-inflater, register the row layouts on it once.
+	 */
+	public ViewPreInflater getPreInflater() {
+		return mPreInflater;
+	}
+
+	public Executor getExecutor() {
+		return mExecutor;
+	}
+
+	/**
+	 * @param header
+	 *            true for the header style, false for the footer style
+	 * @return the style shared by the indicators of the attached lists
+	 */
+	public FlatPullIndicator.Style getIndicatorStyle(boolean header) {
+		if (header) {
+			if (mHeaderStyle == null) {
+				mHeaderStyle = new FlatPullIndicator.Style(mContext, true);
+			}
+			return mHeaderStyle;
+		}
+		if (mFooterStyle == null) {
+			mFooterStyle = new FlatPullIndicator.Style(mContext, false);
+		}
+		return mFooterStyle;
+	}
+
+	/**
+	 * A flat indicator drawn with the shared style, for
+	 * {@link ListViewPlus#setHeaderIndicator} or
+	 * {@link ListViewPlus#setFooterIndicator}.
+	 *
+	 * @param header
+	 *            true for a header indicator, false for a footer indicator
+	 */
+	public FlatPullIndicator newIndicator(Context context, boolean header) {
+		return new FlatPullIndicator(context, getIndicatorStyle(header));
+	}
+}
@@ -0,0 +1,41 @@
+package com.jph.view;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * 热点路径的systrace标记
+ *
+ * <p>
+ * Wraps {@link Trace} sections around the touch, scroll and animation
+ * paths so their cost shows up in systrace/Perfetto captures. Off by
+ * default; a disabled or pre API 18 trace costs one field read.
+ *
+ * @author JPH
+ */
+final class ListViewPlusTrace {
+	private static boolean sEnabled;
+
+	private ListViewPlusTrace() {
+	}
+
+	static void setEnabled(boolean enabled) {
+		sEnabled = enabled
+				&& Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	static void begin(String section) {
+		if (sEnabled) {
+			Trace.beginSection(section);
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	static void end() {
+		if (sEnabled) {
+			Trace.endSection();
+		}
+	}
+}
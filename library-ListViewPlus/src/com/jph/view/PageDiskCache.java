@@ -0,0 +1,322 @@
+package com.jph.view;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.jph.view.PagedDataSource.Page;
+
+/**
+ * 分页数据的磁盘缓存，用于启动时先显示上次的数据
+ *
+ * <p>
+ * Every page is one file in a compact binary format: a small header with
+ * the time it was saved, the next key and the items, each written by a
+ * {@link Codec}. Files are read and written through buffered streams; a
+ * write goes to a temporary file first, so a crash never leaves a torn
+ * page. Pages older than the max age are treated as missing, and the least
+ * recently used pages are deleted once the directory grows over its size
+ * limit. Several lists can share one cache under different names.
+ *
+ * <p>
+ * All methods do file I/O and must not be called on the main thread;
+ * {@link PagedLoader#setDiskCache(PageDiskCache, String)} calls them on its
+ * worker threads.
+ *
+ * @author JPH
+ */
+public class PageDiskCache<Key, Value> {
+	private final static int MAGIC = 0x4c565050;
+	private final static int VERSION = 1;
+	private final static String SUFFIX = ".page";
+	private final static String TMP_SUFFIX = ".tmp";
+	private final static int BUFFER_SIZE = 8 * 1024;
+
+	/**
+	 * Writes and reads one key or item.
+	 */
+	public interface Codec<T> {
+		public void write(DataOutput out, T value) throws IOException;
+
+		public T read(DataInput in) throws IOException;
+	}
+
+	public final static Codec<String> STRING = new Codec<String>() {
+		@Override
+		public void write(DataOutput out, String value) throws IOException {
+			// length prefixed chars, no 64k limit like writeUTF
+			out.writeInt(value.length());
+			out.writeChars(value);
+		}
+
+		@Override
+		public String read(DataInput in) throws IOException {
+			int length = in.readInt();
+			if (length < 0)
+				throw new IOException("bad length " + length);
+			char[] chars = new char[length];
+			for (int i = 0; i < length; i++) {
+				chars[i] = in.readChar();
+			}
+			return new String(chars);
+		}
+	};
+
+	public final static Codec<Integer> INTEGER = new Codec<Integer>() {
+		@Override
+		public void write(DataOutput out, Integer value) throws IOException {
+			out.writeInt(value);
+		}
+
+		@Override
+		public Integer read(DataInput in) throws IOException {
+			return in.readInt();
+		}
+	};
+
+	public final static Codec<Long> LONG = new Codec<Long>() {
+		@Override
+		public void write(DataOutput out, Long value) throws IOException {
+			out.writeLong(value);
+		}
+
+		@Override
+		public Long read(DataInput in) throws IOException {
+			return in.readLong();
+		}
+	};
+
+	private final File mDir;
+	private final long mMaxBytes;
+	private final long mMaxAge;
+	private final Codec<Key> mKeyCodec;
+	private final Codec<Value> mValueCodec;
+
+	/**
+	 * @param dir
+	 *            directory of the cache, e.g. under
+	 *            {@code Context.getCacheDir()}
+	 * @param maxBytes
+	 *            size of all pages above which the least recently used ones
+	 *            are deleted
+	 * @param maxAge
+	 *            milliseconds after which a page is no longer shown
+	 */
+	public PageDiskCache(File dir, long maxBytes, long maxAge,
+			Codec<Key> keyCodec, Codec<Value> valueCodec) {
+		mDir = dir;
+		mMaxBytes = maxBytes;
+		mMaxAge = maxAge;
+		mKeyCodec = keyCodec;
+		mValueCodec = valueCodec;
+	}
+
+	/**
+	 * @return the page, or null if it is not cached, too old or unreadable
+	 */
+	public synchronized Page<Key, Value> get(String name, int index) {
+		File file = getFile(name, index);
+		if (!file.exists())
+			return null;
+		long now = System.currentTimeMillis();
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(file), BUFFER_SIZE));
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				file.delete();
+				return null;
+			}
+			long savedAt = in.readLong();
+			if (now - savedAt > mMaxAge) {
+				file.delete();
+				return null;
+			}
+			Key nextKey = in.readBoolean() ? mKeyCodec.read(in) : null;
+			int count = in.readInt();
+			if (count < 0)
+				throw new IOException("bad count " + count);
+			List<Value> items = new ArrayList<Value>(count);
+			for (int i = 0; i < count; i++) {
+				items.add(mValueCodec.read(in));
+			}
+			// recently used, kept longest on eviction
+			file.setLastModified(now);
+			return new Page<Key, Value>(items, nextKey);
+		} catch (IOException e) {
+			// corrupt or from an older format
+			file.delete();
+			return null;
+		} finally {
+			closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Read the pages of a list from the first one on, up to the first page
+	 * that is missing or the last one.
+	 *
+	 * @return the pages, empty if the first one is not cached
+	 */
+	public synchronized List<Page<Key, Value>> getPages(String name) {
+		List<Page<Key, Value>> pages = new ArrayList<Page<Key, Value>>();
+		for (int index = 0;; index++) {
+			Page<Key, Value> page = get(name, index);
+			if (page == null)
+				break;
+			pages.add(page);
+			if (page.nextKey == null)
+				break;
+		}
+		return pages;
+	}
+
+	/**
+	 * Save a page. A first page replaces every page of the list, the ones
+	 * after it belong to an older refresh.
+	 */
+	public synchronized void put(String name, int index, Page<Key, Value> page) {
+		if (index == 0) {
+			remove(name);
+		}
+		if (!mDir.exists() && !mDir.mkdirs())
+			return;
+		File file = getFile(name, index);
+		File tmp = new File(mDir, file.getName() + TMP_SUFFIX);
+		DataOutputStream out = null;
+		boolean written = false;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(tmp), BUFFER_SIZE));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(System.currentTimeMillis());
+			out.writeBoolean(page.nextKey != null);
+			if (page.nextKey != null) {
+				mKeyCodec.write(out, page.nextKey);
+			}
+			out.writeInt(page.items.size());
+			for (int i = 0, n = page.items.size(); i < n; i++) {
+				mValueCodec.write(out, page.items.get(i));
+			}
+			out.flush();
+			written = true;
+		} catch (IOException e) {
+			// the cache is best effort
+		} finally {
+			closeQuietly(out);
+		}
+		if (!written || !tmp.renameTo(file)) {
+			tmp.delete();
+			return;
+		}
+		trimToSize();
+	}
+
+	/**
+	 * Delete every page of a list.
+	 */
+	public synchronized void remove(String name) {
+		File[] files = mDir.listFiles();
+		if (files == null)
+			return;
+		String prefix = name + "-";
+		for (File file : files) {
+			String fileName = file.getName();
+			if (fileName.startsWith(prefix) && fileName.endsWith(SUFFIX)
+					&& isIndex(fileName, prefix.length(), fileName.length()
+							- SUFFIX.length())) {
+				file.delete();
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		File[] files = mDir.listFiles();
+		if (files == null)
+			return;
+		for (File file : files) {
+			if (isCacheFile(file.getName())) {
+				file.delete();
+			}
+		}
+	}
+
+	private void trimToSize() {
+		// the directory may hold other files, only pages count and go
+		File[] files = mDir.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				return isCacheFile(file.getName());
+			}
+		});
+		if (files == null)
+			return;
+		long size = 0;
+		for (File file : files) {
+			size += file.length();
+		}
+		if (size <= mMaxBytes)
+			return;
+		// least recently used first
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File lhs, File rhs) {
+				long l = lhs.lastModified();
+				long r = rhs.lastModified();
+				return l < r ? -1 : (l == r ? 0 : 1);
+			}
+		});
+		for (int i = 0; i < files.length && size > mMaxBytes; i++) {
+			long length = files[i].length();
+			if (files[i].delete()) {
+				size -= length;
+			}
+		}
+	}
+
+	private static boolean isCacheFile(String fileName) {
+		return fileName.endsWith(SUFFIX) || fileName.endsWith(TMP_SUFFIX);
+	}
+
+	private static boolean isIndex(String s, int start, int end) {
+		if (start >= end)
+			return false;
+		for (int i = start; i < end; i++) {
+			char c = s.charAt(i);
+			if (c < '0' || c > '9')
+				return false;
+		}
+		return true;
+	}
+
+	private File getFile(String name, int index) {
+		if (name.length() == 0 || name.indexOf(File.separatorChar) >= 0) {
+			throw new IllegalArgumentException("bad cache name: " + name);
+		}
+		return new File(mDir, name + "-" + index + SUFFIX);
+	}
+
+	private static void closeQuietly(Closeable closeable) {
+		if (closeable == null)
+			return;
+		try {
+			closeable.close();
+		} catch (IOException e) {
+			// nothing to do
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package com.jph.view;
+
+/**
+ * 跟随可见区域加载和回收分页数据的存储
+ *
+ * <p>
+ * Implemented by {@link WindowedPageStore} and {@link SparsePageStore}.
+ * ListViewPlus reports the adapter positions on screen from
+ * {@code onScroll}, and once more when a fast scroll slows down, so a store
+ * can hold off its loads while rows fly by.
+ *
+ * @author JPH
+ */
+abstract class PageWindow {
+	abstract void attach(ListViewPlus listView);
+
+	abstract void onVisibleRangeChanged(int firstPosition, int lastPosition);
+}
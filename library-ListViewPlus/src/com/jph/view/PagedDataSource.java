@@ -0,0 +1,42 @@
+package com.jph.view;
+
+import java.util.List;
+
+/**
+ * 分页数据源，配合{@link PagedLoader}使用
+ *
+ * <p>
+ * Both methods are called on a {@link PagedLoader} worker thread and may
+ * block. A page without a next key is the last one.
+ *
+ * @author JPH
+ */
+public abstract class PagedDataSource<Key, Value> {
+
+	/**
+	 * Load the first page, used by refresh.
+	 */
+	public abstract Page<Key, Value> loadInitial() throws Exception;
+
+	/**
+	 * Load the page that follows {@code key}.
+	 * 
+	 * @param key
+	 *            the {@link Page#nextKey} of the previous page
+	 */
+	public abstract Page<Key, Value> loadAfter(Key key) throws Exception;
+
+	/**
+	 * One page of items and the key of the page after it.
+	 */
+	public static class Page<Key, Value> {
+		public final List<Value> items;
+		/** null when there is nothing after this page **/
+		public final Key nextKey;
+
+		public Page(List<Value> items, Key nextKey) {
+			this.items = items;
+			this.nextKey = nextKey;
+		}
+	}
+}
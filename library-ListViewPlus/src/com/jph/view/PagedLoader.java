@@ -0,0 +1,574 @@
+package com.jph.view;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.jph.view.ListViewPlus.ListViewPlusListener;
+import com.jph.view.ListViewPlus.OnLoadPreviousListener;
+import com.jph.view.ListViewPlus.PagingStateListener;
+import com.jph.view.PagedDataSource.Page;
+
+/**
+ * 把{@link PagedDataSource}接到ListViewPlus上，负责刷新和加载更多
+ *
+ * <p>
+ * Pages are loaded on an executor with a fixed number of threads and
+ * delivered on the main thread.
+ * Loads of the same page are single-flight, a refresh cancels every pending
+ * page load, and results that belong to an older refresh generation are
+ * dropped instead of appended. The header and footer are stopped
+ * automatically when a request completes, with the token of the operation
+ * that started it, so a late result never stops a newer one.
+ *
+ * <p>
+ * With a {@link PageDiskCache} the first refresh shows the cached pages as
+ * soon as they are read, while the header keeps spinning until the fresh
+ * first page replaces them. Every loaded page is written back to the cache.
+ *
+ * <p>
+ * The page keys are saved with the instance state of the list when they are
+ * {@link Serializable}. On restore only the page of the row that was on top
+ * and the one before it are loaded, and the list lands on that row again.
+ * With a {@link PrependCallback} the pages before them are loaded back when
+ * scrolling up. If they fail to load the list refreshes from the first page
+ * instead.
+ *
+ * @author JPH
+ */
+public class PagedLoader<Key, Value> implements ListViewPlusListener,
+		PagingStateListener, OnLoadPreviousListener {
+	private final static int DEFAULT_THREADS = 2;
+	private static Executor sDefaultExecutor;
+
+	private final static int MODE_REFRESH = 0;
+	private final static int MODE_APPEND = 1;
+	private final static int MODE_PREPEND = 2;
+	private final static int MODE_RESTORE = 3;
+
+	private final static String STATE_KEYS = "com.jph.view.PagedLoader.keys";
+	private final static String STATE_ANCHOR_PAGE = "com.jph.view.PagedLoader.anchorPage";
+	private final static String STATE_ANCHOR_OFFSET = "com.jph.view.PagedLoader.anchorOffset";
+
+	private final ListViewPlus mListView;
+	private final PagedDataSource<Key, Value> mSource;
+	private final Executor mExecutor;
+	private final Callback<Value> mCallback;
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+	// bumped by every refresh, results from older generations are dropped.
+	// Written on the main thread, read by the loads before a cache write.
+	private volatile int mGeneration;
+	// the running refresh or restore
+	private LoadTask mRefreshTask;
+	private LoadTask mPrependTask;
+	// pending page loads by key, main thread only
+	private final HashMap<Key, LoadTask> mPageTasks = new HashMap<Key, LoadTask>();
+	private Key mNextKey;
+	private boolean mLoaded;
+	private boolean mHasMore = true;
+
+	// the keys every page from the first one on was loaded with, null for the
+	// first page. Pages before mFirstPage were skipped by a restore.
+	private final ArrayList<Key> mPageKeys = new ArrayList<Key>();
+	private final ArrayList<Integer> mPageSizes = new ArrayList<Integer>();
+	private int mFirstPage;
+	// load previous of the list was turned on by this loader
+	private boolean mOwnsLoadPrevious;
+
+	private PageDiskCache<Key, Value> mDiskCache;
+	private String mCacheName;
+
+	/**
+	 * Receives loaded pages on the main thread.
+	 */
+	public interface Callback<Value> {
+		/**
+		 * With a disk cache the first refresh can be delivered twice: first
+		 * the cached items, then the fresh ones.
+		 * 
+		 * @param refresh
+		 *            true when the items replace the list, false when they
+		 *            are appended
+		 */
+		public void onPageLoaded(boolean refresh, List<Value> items);
+
+		public void onLoadFailed(boolean refresh, Exception e);
+	}
+
+	/**
+	 * A callback that can also put pages in front of the list, used to load
+	 * back the pages a restore skipped.
+	 */
+	public interface PrependCallback<Value> extends Callback<Value> {
+		/**
+		 * Insert the items at the start of the list and notify the adapter,
+		 * with {@link ListViewPlusAdapter#notifyItemsPrepended(int)} if it is
+		 * one.
+		 */
+		public void onPagePrepended(List<Value> items);
+	}
+
+	/**
+	 * A loader running on {@link ListViewPlus#getLoaderExecutor()}, so set
+	 * the pool of the list first if it has one.
+	 */
+	public PagedLoader(ListViewPlus listView,
+			PagedDataSource<Key, Value> source, Callback<Value> callback) {
+		this(listView, source, callback, listView.getLoaderExecutor());
+	}
+
+	/**
+	 * @param executor
+	 *            runs the data source calls, should have a fixed number of
+	 *            threads
+	 */
+	public PagedLoader(ListViewPlus listView,
+			PagedDataSource<Key, Value> source, Callback<Value> callback,
+			Executor executor) {
+		mListView = listView;
+		mSource = source;
+		mCallback = callback;
+		mExecutor = executor;
+		mListView.setListViewPlusListener(this);
+		mListView.setPagingStateListener(this);
+	}
+
+	/**
+	 * The executor shared by loaders of lists without a pool: a small fixed
+	 * pool of background daemon threads. Its queue is not bounded; loads of
+	 * the same page are single-flight and a refresh cancels the pending
+	 * ones, so it stays short, and a load is never dropped with its header
+	 * or footer still spinning.
+	 */
+	public static synchronized Executor getDefaultExecutor() {
+		if (sDefaultExecutor == null) {
+			sDefaultExecutor = new ThreadPoolExecutor(DEFAULT_THREADS,
+					DEFAULT_THREADS, 0L, TimeUnit.MILLISECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						private final AtomicInteger mCount = new AtomicInteger();
+
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread thread = new Thread(r, "ListViewPlus-loader-"
+									+ mCount.incrementAndGet());
+							thread.setDaemon(true);
+							thread.setPriority(Thread.MIN_PRIORITY);
+							return thread;
+						}
+					});
+		}
+		return sDefaultExecutor;
+	}
+
+	/**
+	 * Show cached pages until the first refresh completes, and cache every
+	 * loaded page.
+	 * 
+	 * @param cache
+	 *            may be shared with other loaders
+	 * @param name
+	 *            the name of this list in the cache
+	 */
+	public void setDiskCache(PageDiskCache<Key, Value> cache, String name) {
+		mDiskCache = cache;
+		mCacheName = name;
+	}
+
+	/**
+	 * @return false once a page without next key has been loaded
+	 */
+	public boolean hasMore() {
+		return mHasMore;
+	}
+
+	/**
+	 * Load the first page again. Cancels every pending load.
+	 */
+	public void refresh() {
+		cancelAll();
+		mGeneration++;
+		mRefreshTask = new LoadTask(mGeneration, MODE_REFRESH,
+				mListView.getRefreshToken(), 0);
+		mRefreshTask.mKeys.add(null);
+		// nothing shown yet, paint the cached pages first.
+		mRefreshTask.mReadCache = !mLoaded && mDiskCache != null;
+		mRefreshTask.mWriteCache = mDiskCache != null;
+		mExecutor.execute(mRefreshTask);
+	}
+
+	/**
+	 * Load the page after the last loaded one. Does nothing while the same
+	 * page or a refresh is already in flight.
+	 */
+	public void loadMore() {
+		if (mRefreshTask != null) {
+			// the refresh will replace the list anyway.
+			mListView.stopLoadMore();
+			return;
+		}
+		if (!mLoaded || !mHasMore) {
+			// nothing to append to yet, or nothing left.
+			mListView.stopLoadMore();
+			return;
+		}
+		Key key = mNextKey;
+		LoadTask pending = mPageTasks.get(key);
+		if (pending != null) {
+			// the list started a new load more for the same page, let the
+			// pending one stop its footer.
+			int token = mListView.getLoadToken();
+			if (token != 0) {
+				pending.mViewToken = token;
+			}
+			return;
+		}
+		LoadTask task = new LoadTask(mGeneration, MODE_APPEND,
+				mListView.getLoadToken(), mFirstPage + mPageSizes.size());
+		task.mKeys.add(key);
+		// the cache only holds pages from the first one on
+		task.mWriteCache = mDiskCache != null && mFirstPage == 0;
+		mPageTasks.put(key, task);
+		mExecutor.execute(task);
+	}
+
+	/**
+	 * @return true while the pages of a restored state are loading; if a
+	 *         restore brought no state back the list has to be refreshed.
+	 *         A restore that fails refreshes by itself.
+	 */
+	public boolean isRestoring() {
+		return mRefreshTask != null && mRefreshTask.mMode == MODE_RESTORE;
+	}
+
+	/**
+	 * Cancel everything, e.g. when the screen goes away.
+	 */
+	public void release() {
+		cancelAll();
+		mGeneration++;
+	}
+
+	@Override
+	public void onRefresh() {
+		refresh();
+	}
+
+	@Override
+	public void onLoadMore() {
+		loadMore();
+	}
+
+	@Override
+	public void onLoadPrevious() {
+		int token = mListView.getLoadPreviousToken();
+		if (mRefreshTask != null || mPrependTask != null || mFirstPage == 0) {
+			mListView.stopLoadPrevious(token, 0);
+			return;
+		}
+		int page = mFirstPage - 1;
+		mPrependTask = new LoadTask(mGeneration, MODE_PREPEND, token, page);
+		mPrependTask.mKeys.add(mPageKeys.get(page));
+		mExecutor.execute(mPrependTask);
+	}
+
+	@Override
+	public void onSavePagingState(Bundle outState, int anchorPosition) {
+		if (!mLoaded || mPageSizes.isEmpty())
+			return;
+		ArrayList<Serializable> keys = new ArrayList<Serializable>(
+				mPageKeys.size());
+		for (int i = 0, n = mPageKeys.size(); i < n; i++) {
+			Key key = mPageKeys.get(i);
+			if (key != null && !(key instanceof Serializable))
+				return;
+			keys.add((Serializable) key);
+		}
+		// the page of the anchor, and where in it the anchor is
+		int page = mFirstPage;
+		int offset = anchorPosition;
+		for (int i = 0, n = mPageSizes.size(); i < n - 1; i++) {
+			int size = mPageSizes.get(i);
+			if (offset < size)
+				break;
+			offset -= size;
+			page++;
+		}
+		outState.putSerializable(STATE_KEYS, keys);
+		outState.putInt(STATE_ANCHOR_PAGE, page);
+		outState.putInt(STATE_ANCHOR_OFFSET, offset);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void onRestorePagingState(Bundle state) {
+		ArrayList<Key> keys = (ArrayList<Key>) state
+				.getSerializable(STATE_KEYS);
+		if (keys == null || keys.isEmpty())
+			return;
+		int anchorPage = Math.min(state.getInt(STATE_ANCHOR_PAGE),
+				keys.size() - 1);
+		cancelAll();
+		mGeneration++;
+		// the page before the anchor too, the row may be near its start
+		int first = Math.max(0, anchorPage - 1);
+		LoadTask task = new LoadTask(mGeneration, MODE_RESTORE, 0, first);
+		task.mKeys.addAll(keys.subList(first, anchorPage + 1));
+		task.mAllKeys = new ArrayList<Key>(keys.subList(0, first));
+		task.mAnchorOffset = state.getInt(STATE_ANCHOR_OFFSET);
+		// blocks load more until the list is back, like a refresh
+		mRefreshTask = task;
+		mExecutor.execute(task);
+	}
+
+	private void cancelAll() {
+		if (mRefreshTask != null) {
+			mRefreshTask.mCancelled = true;
+			mRefreshTask = null;
+		}
+		if (mPrependTask != null) {
+			mPrependTask.mCancelled = true;
+			mPrependTask = null;
+			mListView.stopLoadPrevious(mListView.getLoadPreviousToken(), 0);
+		}
+		if (!mPageTasks.isEmpty()) {
+			Iterator<LoadTask> it = mPageTasks.values().iterator();
+			while (it.hasNext()) {
+				it.next().mCancelled = true;
+			}
+			mPageTasks.clear();
+			mListView.stopLoadMore();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void deliver(LoadTask task) {
+		if (task.mCancelled || task.mGeneration != mGeneration)
+			return;
+
+		boolean refresh = false;
+		switch (task.mMode) {
+		case MODE_REFRESH:
+			refresh = true;
+			mRefreshTask = null;
+			mListView.stopRefresh(task.mViewToken);
+			break;
+		case MODE_APPEND:
+			mPageTasks.remove(task.mKeys.get(0));
+			mListView.stopLoadMore(task.mViewToken);
+			break;
+		case MODE_PREPEND:
+			mPrependTask = null;
+			break;
+		default:
+			refresh = true;
+			mRefreshTask = null;
+			// a refresh the restore superseded
+			mListView.stopRefresh();
+			break;
+		}
+
+		if (task.mError != null) {
+			if (task.mMode == MODE_RESTORE) {
+				// nothing is shown, start over from the first page; a
+				// failure of that refresh is reported.
+				mListView.autoRefresh();
+				return;
+			}
+			if (task.mMode == MODE_PREPEND) {
+				mListView.stopLoadPrevious(task.mViewToken, 0);
+			}
+			mCallback.onLoadFailed(refresh, task.mError);
+			return;
+		}
+
+		switch (task.mMode) {
+		case MODE_REFRESH:
+			mPageKeys.clear();
+			setPages(0, task);
+			mCallback.onPageLoaded(true, task.mPages.get(0).items);
+			break;
+		case MODE_APPEND:
+			addPage(task.mKeys.get(0), task.mPages.get(0));
+			List<Value> page = task.mPages.get(0).items;
+			// lets a sticky header scan only the new items
+			mListView.setAppendCount(page.size());
+			try {
+				mCallback.onPageLoaded(false, page);
+			} finally {
+				mListView.setAppendCount(0);
+			}
+			break;
+		case MODE_PREPEND:
+			List<Value> items = task.mPages.get(0).items;
+			mFirstPage--;
+			mPageSizes.add(0, items.size());
+			((PrependCallback<Value>) mCallback).onPagePrepended(items);
+			mListView.stopLoadPrevious(task.mViewToken, items.size());
+			updateLoadPrevious();
+			break;
+		default:
+			deliverRestored(task);
+			break;
+		}
+	}
+
+	private void deliverRestored(LoadTask task) {
+		mPageKeys.clear();
+		mPageKeys.addAll(task.mAllKeys);
+		setPages(task.mFirstIndex, task);
+		List<Value> items = new ArrayList<Value>();
+		for (int i = 0, n = task.mPages.size(); i < n; i++) {
+			items.addAll(task.mPages.get(i).items);
+		}
+		mCallback.onPageLoaded(true, items);
+		// the anchor is in the last page loaded
+		int lastSize = task.mPages.get(task.mPages.size() - 1).items.size();
+		mListView.restoreAnchor(items.size() - lastSize + task.mAnchorOffset);
+	}
+
+	/**
+	 * Show the cached pages while the refresh goes on. Loading more stays
+	 * blocked by the refresh, so the next key is only taken for the display.
+	 */
+	private void deliverCached(LoadTask task, List<Page<Key, Value>> pages) {
+		if (task.mCancelled || task.mGeneration != mGeneration || mLoaded)
+			return;
+		List<Value> items = new ArrayList<Value>();
+		for (int i = 0, n = pages.size(); i < n; i++) {
+			items.addAll(pages.get(i).items);
+		}
+		mCallback.onPageLoaded(true, items);
+	}
+
+	/**
+	 * Replace the loaded pages by the ones of a refresh or restore. The keys
+	 * of the pages before must be in place already.
+	 */
+	private void setPages(int firstPage, LoadTask task) {
+		mPageSizes.clear();
+		mFirstPage = firstPage;
+		for (int i = 0, n = task.mPages.size(); i < n; i++) {
+			addPage(task.mKeys.get(i), task.mPages.get(i));
+		}
+		updateLoadPrevious();
+	}
+
+	private void addPage(Key key, Page<Key, Value> page) {
+		mPageKeys.add(key);
+		mPageSizes.add(page.items.size());
+		mNextKey = page.nextKey;
+		mLoaded = true;
+		mHasMore = mNextKey != null;
+	}
+
+	/**
+	 * Let the list load back the pages a restore skipped.
+	 */
+	private void updateLoadPrevious() {
+		if (!(mCallback instanceof PrependCallback))
+			return;
+		if (mFirstPage > 0) {
+			mOwnsLoadPrevious = true;
+			mListView.setOnLoadPreviousListener(this);
+			mListView.setLoadPreviousEnable(true);
+		} else if (mOwnsLoadPrevious) {
+			mOwnsLoadPrevious = false;
+			mListView.setOnLoadPreviousListener(null);
+			mListView.setLoadPreviousEnable(false);
+		}
+	}
+
+	private class LoadTask implements Runnable {
+		final int mGeneration;
+		final int mMode;
+		// token of the list operation this load completes, moved to the
+		// newer one when the list restarts a load more of the same page
+		int mViewToken;
+		// index of the first page to load, and the keys to load them with
+		final int mFirstIndex;
+		final ArrayList<Key> mKeys = new ArrayList<Key>();
+		// restore only: keys of the skipped pages before the first one
+		ArrayList<Key> mAllKeys;
+		int mAnchorOffset;
+		boolean mReadCache;
+		boolean mWriteCache;
+		volatile boolean mCancelled;
+		final ArrayList<Page<Key, Value>> mPages = new ArrayList<Page<Key, Value>>();
+		Exception mError;
+
+		LoadTask(int generation, int mode, int viewToken, int firstIndex) {
+			mGeneration = generation;
+			mMode = mode;
+			mViewToken = viewToken;
+			mFirstIndex = firstIndex;
+		}
+
+		@Override
+		public void run() {
+			if (mCancelled)
+				return;
+			if (mReadCache) {
+				readCache();
+			}
+			try {
+				for (int i = 0, n = mKeys.size(); i < n && !mCancelled; i++) {
+					int index = mFirstIndex + i;
+					Page<Key, Value> page = index == 0 ? mSource
+							.loadInitial() : mSource.loadAfter(mKeys.get(i));
+					mPages.add(page);
+					if (mWriteCache) {
+						writeCache(index, page);
+					}
+				}
+			} catch (Exception e) {
+				mError = e;
+			}
+			if (mCancelled)
+				return;
+			mHandler.post(new Runnable() {
+				@Override
+				public void run() {
+					deliver(LoadTask.this);
+				}
+			});
+		}
+
+		private void writeCache(int index, Page<Key, Value> page) {
+			// checked under the cache lock: a newer refresh bumps the
+			// generation before its first page is written, so a stale page
+			// either fails the check or is removed by that first page.
+			synchronized (mDiskCache) {
+				if (mCancelled
+						|| mGeneration != PagedLoader.this.mGeneration)
+					return;
+				mDiskCache.put(mCacheName, index, page);
+			}
+		}
+
+		private void readCache() {
+			final List<Page<Key, Value>> pages = mDiskCache
+					.getPages(mCacheName);
+			if (pages.isEmpty() || mCancelled)
+				return;
+			mHandler.post(new Runnable() {
+				@Override
+				public void run() {
+					deliverCached(LoadTask.this, pages);
+				}
+			});
+		}
+	}
+}
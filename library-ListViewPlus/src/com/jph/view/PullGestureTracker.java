@@ -0,0 +1,157 @@
+package com.jph.view;
+
+import android.content.Context;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.ViewConfiguration;
+
+/**
+ * 下拉/上拉手势的识别
+ *
+ * <p>
+ * Follows one active pointer and hands off to another finger when it goes
+ * up, so a second finger neither jumps the header nor releases the pull.
+ * A drag starts once the touch slop is crossed. Each event yields a single
+ * delta for the whole batch of samples it carries, while the velocity
+ * tracker sees every historical sample. Nothing is allocated per event.
+ *
+ * @author JPH
+ */
+class PullGestureTracker {
+	final static int EVENT_NONE = 0;
+	final static int EVENT_DOWN = 1;
+	final static int EVENT_DRAG = 2;
+	final static int EVENT_RELEASE = 3;
+	// a parent took the gesture, nothing must be triggered
+	final static int EVENT_CANCEL = 4;
+
+	private final static int INVALID_POINTER = -1;
+
+	private final int mTouchSlop;
+	private final int mMaxVelocity;
+	private VelocityTracker mVelocityTracker;
+
+	private int mActivePointerId = INVALID_POINTER;
+	private float mLastY;
+	private float mDownY;
+	private boolean mDragging;
+	private float mDeltaY;
+	private float mVelocityY;
+
+	PullGestureTracker(Context context) {
+		ViewConfiguration configuration = ViewConfiguration.get(context);
+		mTouchSlop = configuration.getScaledTouchSlop();
+		mMaxVelocity = configuration.getScaledMaximumFlingVelocity();
+	}
+
+	/**
+	 * @return one of the EVENT constants
+	 */
+	int process(MotionEvent ev) {
+		if (mVelocityTracker == null) {
+			// kept for the lifetime of the view, cleared per gesture
+			mVelocityTracker = VelocityTracker.obtain();
+		}
+
+		int action = ev.getActionMasked();
+		if (action == MotionEvent.ACTION_DOWN) {
+			mVelocityTracker.clear();
+		}
+		mVelocityTracker.addMovement(ev);
+
+		switch (action) {
+		case MotionEvent.ACTION_DOWN:
+			mActivePointerId = ev.getPointerId(0);
+			mLastY = mDownY = ev.getY();
+			mDragging = false;
+			return EVENT_DOWN;
+
+		case MotionEvent.ACTION_POINTER_DOWN: {
+			// the newest finger drives the pull
+			int index = ev.getActionIndex();
+			mActivePointerId = ev.getPointerId(index);
+			mLastY = ev.getY(index);
+			return EVENT_NONE;
+		}
+
+		case MotionEvent.ACTION_POINTER_UP: {
+			int index = ev.getActionIndex();
+			if (ev.getPointerId(index) == mActivePointerId) {
+				// hand off to another finger that is still down
+				int newIndex = index == 0 ? 1 : 0;
+				mActivePointerId = ev.getPointerId(newIndex);
+				mLastY = ev.getY(newIndex);
+			}
+			return EVENT_NONE;
+		}
+
+		case MotionEvent.ACTION_MOVE: {
+			if (mActivePointerId == INVALID_POINTER) {
+				// the down went to a child that took it, e.g. the clickable
+				// footer, and the list intercepted past the slop: drag from
+				// here.
+				mVelocityTracker.clear();
+				mVelocityTracker.addMovement(ev);
+				mActivePointerId = ev.getPointerId(0);
+				mLastY = mDownY = ev.getY(0);
+				mDragging = true;
+				return EVENT_NONE;
+			}
+			int index = ev.findPointerIndex(mActivePointerId);
+			if (index < 0)
+				return EVENT_NONE;
+			float y = ev.getY(index);
+			if (!mDragging) {
+				if (Math.abs(y - mDownY) <= mTouchSlop)
+					return EVENT_NONE;
+				mDragging = true;
+				// don't jump by the slop
+				mLastY = y;
+				return EVENT_NONE;
+			}
+			// the batched samples all end at y, one delta covers them.
+			mDeltaY = y - mLastY;
+			mLastY = y;
+			return EVENT_DRAG;
+		}
+
+		case MotionEvent.ACTION_UP:
+			mVelocityTracker.computeCurrentVelocity(1000, mMaxVelocity);
+			mVelocityY = mVelocityTracker.getYVelocity(mActivePointerId);
+			mActivePointerId = INVALID_POINTER;
+			mDragging = false;
+			return EVENT_RELEASE;
+
+		case MotionEvent.ACTION_CANCEL:
+			mVelocityY = 0;
+			mActivePointerId = INVALID_POINTER;
+			mDragging = false;
+			return EVENT_CANCEL;
+
+		default:
+			return EVENT_NONE;
+		}
+	}
+
+	/**
+	 * @return movement of the active pointer since the previous drag event
+	 */
+	float getDeltaY() {
+		return mDeltaY;
+	}
+
+	/**
+	 * @return vertical velocity at release in pixels per second, positive
+	 *         when moving down
+	 */
+	float getVelocityY() {
+		return mVelocityY;
+	}
+
+	void recycle() {
+		if (mVelocityTracker != null) {
+			mVelocityTracker.recycle();
+			mVelocityTracker = null;
+		}
+	}
+}
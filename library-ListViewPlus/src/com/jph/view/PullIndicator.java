@@ -0,0 +1,46 @@
+package com.jph.view;
+
+import android.view.View;
+
+/**
+ * 头部/脚部的加载指示器，见{@link ListViewPlus#setHeaderIndicator}
+ *
+ * <p>
+ * The view is put into the header or footer row by ListViewPlus. A header
+ * indicator is resized to the pulled height on every move, so it should
+ * draw its content aligned to its bottom and cheaply; a footer indicator is
+ * laid out at its content height.
+ *
+ * @author JPH
+ */
+public interface PullIndicator {
+	public final static int STATE_NORMAL = 0;
+	public final static int STATE_READY = 1;
+	public final static int STATE_LOADING = 2;
+
+	public View getView();
+
+	/**
+	 * @return the height of the content when fully shown, which is also the
+	 *         pull distance that arms a refresh
+	 */
+	public int getContentHeight();
+
+	/**
+	 * @param state
+	 *            {@link #STATE_NORMAL}, {@link #STATE_READY} or
+	 *            {@link #STATE_LOADING}
+	 */
+	public void setState(int state);
+
+	/**
+	 * Show the last refresh time. Only header indicators show it.
+	 */
+	public void setTimeText(CharSequence text);
+
+	/**
+	 * Same as {@link #setTimeText(CharSequence)} from a buffer that is reused
+	 * by the caller, so the chars must be copied.
+	 */
+	public void setTimeText(char[] text, int start, int length);
+}
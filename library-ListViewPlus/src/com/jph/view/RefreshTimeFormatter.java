@@ -0,0 +1,165 @@
+package com.jph.view;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import android.content.res.Resources;
+import android.text.format.DateUtils;
+
+import com.jph.lp.R;
+
+/**
+ * 把上次刷新时间格式化为“N分钟前”
+ *
+ * <p>
+ * Renders into a reused char buffer and only when the shown value changes,
+ * so it can be called on every frame of a pull without allocating. Times
+ * older than a week are shown as a date, formatted once per timestamp.
+ *
+ * @author JPH
+ */
+class RefreshTimeFormatter {
+	private final static int UNIT_NONE = -1;
+	private final static int UNIT_JUST_NOW = 0;
+	private final static int UNIT_MINUTE = 1;
+	private final static int UNIT_HOUR = 2;
+	private final static int UNIT_DAY = 3;
+	private final static int UNIT_DATE = 4;
+
+	private final static int MAX_DAYS = 7;
+
+	private final String mJustNow;
+	private final String mMinutesAgo;
+	private final String mHoursAgo;
+	private final String mDaysAgo;
+	private SimpleDateFormat mDateFormat;
+	private Date mDate;
+
+	private final char[] mBuffer = new char[32];
+	private int mLength;
+
+	private int mUnit = UNIT_NONE;
+	private long mValue;
+
+	RefreshTimeFormatter(Resources res) {
+		mJustNow = res.getString(R.string.listview_plus_time_just_now);
+		mMinutesAgo = res.getString(R.string.listview_plus_time_minutes_ago);
+		mHoursAgo = res.getString(R.string.listview_plus_time_hours_ago);
+		mDaysAgo = res.getString(R.string.listview_plus_time_days_ago);
+	}
+
+	char[] getBuffer() {
+		return mBuffer;
+	}
+
+	int getLength() {
+		return mLength;
+	}
+
+	/**
+	 * Force the next {@link #update(long, long)} to render.
+	 */
+	void invalidate() {
+		mUnit = UNIT_NONE;
+	}
+
+	/**
+	 * @return true if the text in the buffer changed
+	 */
+	boolean update(long time, long now) {
+		long elapsed = Math.max(0, now - time);
+		int unit;
+		long value;
+		if (elapsed < DateUtils.MINUTE_IN_MILLIS) {
+			unit = UNIT_JUST_NOW;
+			value = 0;
+		} else if (elapsed < DateUtils.HOUR_IN_MILLIS) {
+			unit = UNIT_MINUTE;
+			value = elapsed / DateUtils.MINUTE_IN_MILLIS;
+		} else if (elapsed < DateUtils.DAY_IN_MILLIS) {
+			unit = UNIT_HOUR;
+			value = elapsed / DateUtils.HOUR_IN_MILLIS;
+		} else if (elapsed < MAX_DAYS * DateUtils.DAY_IN_MILLIS) {
+			unit = UNIT_DAY;
+			value = elapsed / DateUtils.DAY_IN_MILLIS;
+		} else {
+			unit = UNIT_DATE;
+			value = time;
+		}
+		if (unit == mUnit && value == mValue)
+			return false;
+		mUnit = unit;
+		mValue = value;
+
+		mLength = 0;
+		switch (unit) {
+		case UNIT_JUST_NOW:
+			append(mJustNow);
+			break;
+		case UNIT_MINUTE:
+			appendNumber(value);
+			append(mMinutesAgo);
+			break;
+		case UNIT_HOUR:
+			appendNumber(value);
+			append(mHoursAgo);
+			break;
+		case UNIT_DAY:
+			appendNumber(value);
+			append(mDaysAgo);
+			break;
+		default:
+			appendDate(time);
+			break;
+		}
+		return true;
+	}
+
+	/**
+	 * @return milliseconds until the shown text changes next
+	 */
+	long getNextChangeDelay(long time, long now) {
+		long elapsed = Math.max(0, now - time);
+		long step;
+		if (elapsed < DateUtils.HOUR_IN_MILLIS) {
+			step = DateUtils.MINUTE_IN_MILLIS;
+		} else if (elapsed < DateUtils.DAY_IN_MILLIS) {
+			step = DateUtils.HOUR_IN_MILLIS;
+		} else {
+			step = DateUtils.DAY_IN_MILLIS;
+		}
+		return step - elapsed % step;
+	}
+
+	private void appendDate(long time) {
+		// only reached once per timestamp
+		if (mDateFormat == null) {
+			mDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm",
+					Locale.getDefault());
+			mDate = new Date();
+		}
+		mDate.setTime(time);
+		append(mDateFormat.format(mDate));
+	}
+
+	private void append(String s) {
+		int n = Math.min(s.length(), mBuffer.length - mLength);
+		s.getChars(0, n, mBuffer, mLength);
+		mLength += n;
+	}
+
+	private void appendNumber(long value) {
+		int start = mLength;
+		do {
+			mBuffer[mLength++] = (char) ('0' + value % 10);
+			value /= 10;
+		} while (value > 0 && mLength < mBuffer.length);
+		// digits were written backwards
+		for (int i = start, j = mLength - 1; i < j; i++, j--) {
+			char c = mBuffer[i];
+			mBuffer[i] = mBuffer[j];
+			mBuffer[j] = c;
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.jph.view;
+
+import java.util.Arrays;
+
+/**
+ * 分组起始位置的索引
+ *
+ * <p>
+ * The first position of every section, in order, in an {@code int[]}. It is
+ * built incrementally: {@link #append(StickyHeaderAdapter, int)} only looks
+ * at the positions after the ones already indexed, so a load more costs
+ * the size of the new page. The section of a position is found by binary
+ * search without allocating.
+ *
+ * @author JPH
+ */
+public class SectionIndex {
+	private int[] mStarts = new int[16];
+	private int mSectionCount;
+	private int mItemCount;
+
+	public int getSectionCount() {
+		return mSectionCount;
+	}
+
+	/**
+	 * @return the number of items indexed so far
+	 */
+	public int getItemCount() {
+		return mItemCount;
+	}
+
+	public int getSectionStart(int section) {
+		if (section < 0 || section >= mSectionCount) {
+			throw new IndexOutOfBoundsException("section " + section
+					+ ", count " + mSectionCount);
+		}
+		return mStarts[section];
+	}
+
+	/**
+	 * @return the section containing {@code position}, or -1 if it is not
+	 *         indexed
+	 */
+	public int getSectionForPosition(int position) {
+		if (position < 0 || position >= mItemCount)
+			return -1;
+		// last section whose start is <= position
+		int index = Arrays.binarySearch(mStarts, 0, mSectionCount, position);
+		return index >= 0 ? index : -index - 2;
+	}
+
+	/**
+	 * Index the items from {@link #getItemCount()} up to {@code itemCount}.
+	 */
+	public void append(StickyHeaderAdapter adapter, int itemCount) {
+		for (int position = mItemCount; position < itemCount; position++) {
+			if (position == 0 || adapter.isSectionStart(position)) {
+				if (mSectionCount == mStarts.length) {
+					int[] starts = new int[mStarts.length * 2];
+					System.arraycopy(mStarts, 0, starts, 0, mSectionCount);
+					mStarts = starts;
+				}
+				mStarts[mSectionCount++] = position;
+			}
+		}
+		mItemCount = Math.max(mItemCount, itemCount);
+	}
+
+	public void clear() {
+		mSectionCount = 0;
+		mItemCount = 0;
+	}
+}
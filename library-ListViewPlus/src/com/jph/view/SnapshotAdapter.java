@@ -0,0 +1,48 @@
+package com.jph.view;
+
+import java.util.List;
+
+import android.widget.ListAdapter;
+
+/**
+ * 支持差量刷新的Adapter，配合{@link ListViewPlus#submitSnapshot(List)}使用
+ *
+ * <p>
+ * {@link #getItemKey(Object)} and {@link #isSameContent(Object, Object)} are
+ * called on a background thread and must only look at the items.
+ *
+ * <p>
+ * When the keys change, e.g. items were inserted or removed, the data set
+ * changes and every visible row goes through getView again. With stable
+ * ids the rows on screen get the view that showed their item back (from
+ * KitKat on), so an adapter can skip the bind of a row whose view already
+ * shows the item, as {@link ListViewPlusAdapter} does.
+ *
+ * @author JPH
+ */
+public interface SnapshotAdapter<T> extends ListAdapter {
+	/**
+	 * @return the items currently shown
+	 */
+	public List<T> getSnapshot();
+
+	/**
+	 * Replace the items. Must not notify, ListViewPlus decides whether the
+	 * change needs a data set change or only a rebind of some rows.
+	 */
+	public void setSnapshot(List<T> items);
+
+	/**
+	 * @return the identity of the item, equal for two versions of the same
+	 *         item
+	 */
+	public long getItemKey(T item);
+
+	/**
+	 * @return true if the row of {@code oldItem} still shows
+	 *         {@code newItem} correctly
+	 */
+	public boolean isSameContent(T oldItem, T newItem);
+
+	public void notifyDataSetChanged();
+}
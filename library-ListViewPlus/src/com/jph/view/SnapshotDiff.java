@@ -0,0 +1,51 @@
+package com.jph.view;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 计算两个快照之间的差异
+ *
+ * @author JPH
+ */
+class SnapshotDiff {
+	/** true if both snapshots have the same keys in the same order **/
+	boolean sameStructure;
+	/**
+	 * per new position, true if the row needs to be bound again; only
+	 * filled when the structure is the same, otherwise the data set change
+	 * binds the visible rows anyway
+	 **/
+	boolean[] changed;
+	/** old key to new position, only filled when the structure changed **/
+	HashMap<Long, Integer> newPositions;
+
+	static <T> SnapshotDiff compute(SnapshotAdapter<T> adapter,
+			List<T> oldItems, List<T> newItems) {
+		SnapshotDiff diff = new SnapshotDiff();
+		int newSize = newItems.size();
+		diff.sameStructure = oldItems.size() == newSize;
+
+		if (diff.sameStructure) {
+			diff.changed = new boolean[newSize];
+			for (int i = 0; i < newSize; i++) {
+				T oldItem = oldItems.get(i);
+				T newItem = newItems.get(i);
+				if (adapter.getItemKey(oldItem) != adapter.getItemKey(newItem)) {
+					diff.sameStructure = false;
+					break;
+				}
+				diff.changed[i] = !adapter.isSameContent(oldItem, newItem);
+			}
+			if (diff.sameStructure)
+				return diff;
+			diff.changed = null;
+		}
+
+		diff.newPositions = new HashMap<Long, Integer>(newSize * 2);
+		for (int i = 0; i < newSize; i++) {
+			diff.newPositions.put(adapter.getItemKey(newItems.get(i)), i);
+		}
+		return diff;
+	}
+}
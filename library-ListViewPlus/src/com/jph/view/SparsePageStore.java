@@ -0,0 +1,235 @@
+package com.jph.view;
+
+import java.util.List;
+
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+
+/**
+ * 已知总数的稀疏列表，未加载的位置显示占位条目
+ *
+ * <p>
+ * For backends that report the total count up front: {@link #getCount()}
+ * is the full count right away, so the list can be scrolled, or jumped with
+ * the fast scroll thumb, to any position without going through load more.
+ * Pages have a fixed size and only the pages near the visible rows are
+ * held, in a {@link SparseArray}; an unloaded range costs nothing.
+ * {@link #get(int)} returns null for an item whose page isn't loaded and
+ * the adapter binds a placeholder row for it. The visible pages and the
+ * resident pages around them are requested through the {@link PageLoader},
+ * visible ones first, and not while the list is fast scrolling, so a thumb
+ * jump only loads where it lands. The visible rows of a page are bound again
+ * once {@link #setPage(int, int, List)} brings it in. Every request carries
+ * a generation that {@link #clear()} and {@link #setCount(int)} move on, so
+ * a page requested before them is dropped when it arrives. All methods must
+ * be called on the main thread.
+ *
+ * <p>
+ * Attach it with {@link ListViewPlus#setPageStore(SparsePageStore)} and
+ * disable load more, the count is known.
+ *
+ * @author JPH
+ */
+public class SparsePageStore<T> extends PageWindow {
+	/**
+	 * Fetches one page, asynchronously. The result must be passed to
+	 * {@link SparsePageStore#setPage(int, int, List)} with the same
+	 * generation.
+	 */
+	public interface PageLoader {
+		/**
+		 * @param generation
+		 *            to pass back with the result
+		 * @param page
+		 *            index of the page
+		 * @param offset
+		 *            position of its first item
+		 * @param count
+		 *            number of items expected
+		 */
+		public void loadPage(int generation, int page, int offset, int count);
+	}
+
+	private final int mPageSize;
+	private final int mResidentPages;
+	private final PageLoader mLoader;
+	private ListViewPlus mListView;
+
+	private int mCount;
+	// only pages that are loaded
+	private final SparseArray<List<T>> mPages = new SparseArray<List<T>>();
+	private final SparseBooleanArray mLoading = new SparseBooleanArray();
+	// moved on by clear(), older results are dropped
+	private int mGeneration;
+
+	private int mFirstVisiblePage = -1;
+	private int mLastVisiblePage = -1;
+	// visible pages changed while fast scrolling, not requested yet
+	private boolean mRequestPending;
+
+	/**
+	 * @param pageSize
+	 *            items per page, the last page may be shorter
+	 * @param residentPages
+	 *            pages kept on each side of the visible pages
+	 * @param loader
+	 *            fetches pages
+	 */
+	public SparsePageStore(int pageSize, int residentPages, PageLoader loader) {
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("pageSize " + pageSize);
+		}
+		mPageSize = pageSize;
+		mResidentPages = residentPages;
+		mLoader = loader;
+	}
+
+	@Override
+	void attach(ListViewPlus listView) {
+		mListView = listView;
+	}
+
+	public int getCount() {
+		return mCount;
+	}
+
+	/**
+	 * Set the total count reported by the backend. Loaded pages are dropped
+	 * if the count changes, the adapter must call
+	 * {@code notifyDataSetChanged()}.
+	 */
+	public void setCount(int count) {
+		if (count < 0) {
+			throw new IllegalArgumentException("count " + count);
+		}
+		if (count == mCount)
+			return;
+		mCount = count;
+		clear();
+	}
+
+	public int getPageSize() {
+		return mPageSize;
+	}
+
+	public int getPageCount() {
+		return (mCount + mPageSize - 1) / mPageSize;
+	}
+
+	/**
+	 * @return the item, or null if its page is not loaded yet
+	 */
+	public T get(int position) {
+		if (position < 0 || position >= mCount) {
+			throw new IndexOutOfBoundsException("position " + position
+					+ ", count " + mCount);
+		}
+		List<T> items = mPages.get(position / mPageSize);
+		return items == null ? null : items.get(position % mPageSize);
+	}
+
+	public boolean isLoaded(int position) {
+		return mPages.get(position / mPageSize) != null;
+	}
+
+	/**
+	 * Put a loaded page in. It must have the expected size. Ignored if it
+	 * was requested before a {@link #clear()}, or if the page has scrolled
+	 * out of the resident window in the meantime.
+	 */
+	public void setPage(int generation, int page, List<T> items) {
+		if (generation != mGeneration || page < 0 || page >= getPageCount())
+			return;
+		int start = page * mPageSize;
+		int end = Math.min(start + mPageSize, mCount);
+		if (items.size() != end - start) {
+			throw new IllegalArgumentException("page " + page + " has "
+					+ items.size() + " items, expected " + (end - start));
+		}
+		mLoading.delete(page);
+		if (!isInWindow(page))
+			return;
+		mPages.put(page, items);
+		if (mListView != null) {
+			mListView.rebindRange(start, end);
+		}
+	}
+
+	/**
+	 * A page failed to load; it is requested again when it comes back into
+	 * the window.
+	 */
+	public void onPageFailed(int generation, int page) {
+		if (generation == mGeneration) {
+			mLoading.delete(page);
+		}
+	}
+
+	/**
+	 * Drop every loaded page, e.g. before a refresh. Loads in flight are
+	 * ignored when they arrive.
+	 */
+	public void clear() {
+		mGeneration++;
+		mPages.clear();
+		mLoading.clear();
+		mFirstVisiblePage = -1;
+		mLastVisiblePage = -1;
+		mRequestPending = false;
+	}
+
+	@Override
+	void onVisibleRangeChanged(int firstPosition, int lastPosition) {
+		if (mCount == 0 || lastPosition < firstPosition)
+			return;
+		int firstPage = Math.min(firstPosition, mCount - 1) / mPageSize;
+		int lastPage = Math.min(lastPosition, mCount - 1) / mPageSize;
+		boolean fast = mListView != null && mListView.isFastScrolling();
+		if (firstPage == mFirstVisiblePage && lastPage == mLastVisiblePage
+				&& (fast || !mRequestPending))
+			return;
+		mFirstVisiblePage = firstPage;
+		mLastVisiblePage = lastPage;
+
+		// walk the loaded pages backwards so removing is safe
+		for (int i = mPages.size() - 1; i >= 0; i--) {
+			if (!isInWindow(mPages.keyAt(i))) {
+				mPages.removeAt(i);
+			}
+		}
+		if (fast) {
+			// rows fly by, only load where the scroll stops
+			mRequestPending = true;
+			return;
+		}
+		mRequestPending = false;
+		for (int page = firstPage; page <= lastPage; page++) {
+			requestPage(page);
+		}
+		int pageCount = getPageCount();
+		for (int d = 1; d <= mResidentPages; d++) {
+			if (lastPage + d < pageCount) {
+				requestPage(lastPage + d);
+			}
+			if (firstPage - d >= 0) {
+				requestPage(firstPage - d);
+			}
+		}
+	}
+
+	private boolean isInWindow(int page) {
+		if (mFirstVisiblePage < 0)
+			return true;
+		return page >= mFirstVisiblePage - mResidentPages
+				&& page <= mLastVisiblePage + mResidentPages;
+	}
+
+	private void requestPage(int page) {
+		if (mPages.get(page) != null || mLoading.get(page))
+			return;
+		mLoading.put(page, true);
+		int start = page * mPageSize;
+		mLoader.loadPage(mGeneration, page, start,
+				Math.min(mPageSize, mCount - start));
+	}
+}
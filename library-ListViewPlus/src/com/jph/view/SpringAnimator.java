@@ -0,0 +1,272 @@
+package com.jph.view;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+/**
+ * 帧同步的弹簧动画，用于头部和尾部的回弹
+ *
+ * <p>
+ * Frames are driven by {@link Choreographer} on API 16+ and by a 16ms
+ * {@link Handler} tick below that. The spring can be retargeted or grabbed at
+ * any time without losing its velocity, and no frame is requested once it is
+ * at rest.
+ *
+ * @author JPH
+ */
+class SpringAnimator {
+	/**
+	 * Receives the animated value. Only called when the rounded value
+	 * actually changes.
+	 */
+	interface Target {
+		public void onSpringUpdate(SpringAnimator spring, int value);
+	}
+
+	/**
+	 * Reports the cost of every frame the spring has run.
+	 */
+	interface FrameListener {
+		public void onSpringFrame(SpringAnimator spring,
+				long frameIntervalNanos, long workNanos);
+	}
+
+	// critically damped, settles in about 400ms like the old scroller
+	private final static float DEFAULT_STIFFNESS = 230f;
+	private final static float DEFAULT_DAMPING_RATIO = 1f;
+
+	private final static float REST_DISPLACEMENT = 0.5f;
+	private final static float REST_VELOCITY = 10f;
+	// integrate in small fixed steps so long frames stay stable
+	private final static float MAX_STEP_SECONDS = 0.004f;
+	// never integrate more than this after a stall
+	private final static long MAX_FRAME_NANOS = 64000000L;
+
+	private final Target mTarget;
+	private final FrameScheduler mScheduler;
+	private FrameListener mFrameListener;
+
+	private float mStiffness = DEFAULT_STIFFNESS;
+	private float mDampingRatio = DEFAULT_DAMPING_RATIO;
+
+	private float mValue;
+	private float mVelocity;
+	private float mEndValue;
+	private int mLastAppliedValue;
+
+	private boolean mRunning;
+	private long mLastFrameNanos;
+
+	SpringAnimator(Target target) {
+		mTarget = target;
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			mScheduler = new ChoreographerScheduler(this);
+		} else {
+			mScheduler = new HandlerScheduler(this);
+		}
+	}
+
+	void setFrameListener(FrameListener listener) {
+		mFrameListener = listener;
+	}
+
+	/**
+	 * @param stiffness
+	 *            spring constant, higher is snappier
+	 * @param dampingRatio
+	 *            1 is critically damped, lower values overshoot
+	 */
+	void setSpring(float stiffness, float dampingRatio) {
+		mStiffness = stiffness;
+		mDampingRatio = dampingRatio;
+	}
+
+	/**
+	 * Move the current position without notifying the target, e.g. after
+	 * part of the animated distance was committed elsewhere. A running spring
+	 * keeps its velocity.
+	 */
+	void setValue(int value) {
+		mValue = value;
+		mLastAppliedValue = value;
+		if (!mRunning) {
+			mVelocity = 0;
+		}
+	}
+
+	/**
+	 * Animate from the current position to {@code endValue}. If the spring is
+	 * already running it is retargeted and keeps its velocity.
+	 */
+	void animateTo(int endValue) {
+		mEndValue = endValue;
+		start();
+	}
+
+	/**
+	 * Animate to {@code endValue} starting with a velocity, in pixels per
+	 * second, e.g. the one the finger released the header with. It replaces
+	 * the velocity of a running spring.
+	 */
+	void fling(float velocity, int endValue) {
+		mVelocity = velocity;
+		animateTo(endValue);
+	}
+
+	/**
+	 * Stop where it is, e.g. when the user grabs the header again.
+	 */
+	void cancel() {
+		if (mRunning) {
+			mRunning = false;
+			mVelocity = 0;
+			mScheduler.cancel();
+		}
+	}
+
+	/**
+	 * Jump to the end value and stop, e.g. when the view is detached in the
+	 * middle of an animation.
+	 */
+	void end() {
+		if (mRunning) {
+			mScheduler.cancel();
+			settle();
+		}
+	}
+
+	private void start() {
+		if (isAtRest()) {
+			settle();
+			return;
+		}
+		if (!mRunning) {
+			mRunning = true;
+			mLastFrameNanos = 0;
+			mScheduler.schedule();
+		}
+	}
+
+	private boolean isAtRest() {
+		return Math.abs(mEndValue - mValue) < REST_DISPLACEMENT
+				&& Math.abs(mVelocity) < REST_VELOCITY;
+	}
+
+	private void settle() {
+		mRunning = false;
+		mValue = mEndValue;
+		mVelocity = 0;
+		apply();
+	}
+
+	private void apply() {
+		int value = Math.round(mValue);
+		if (value != mLastAppliedValue) {
+			mLastAppliedValue = value;
+			mTarget.onSpringUpdate(this, value);
+		}
+	}
+
+	void doFrame(long frameTimeNanos) {
+		if (!mRunning)
+			return;
+
+		long start = System.nanoTime();
+		long interval = mLastFrameNanos == 0 ? 0 : frameTimeNanos
+				- mLastFrameNanos;
+		mLastFrameNanos = frameTimeNanos;
+
+		ListViewPlusTrace.begin("ListViewPlus#springFrame");
+		if (interval > 0) {
+			step(Math.min(interval, MAX_FRAME_NANOS) / 1e9f);
+		}
+
+		if (isAtRest()) {
+			settle();
+		} else {
+			apply();
+			mScheduler.schedule();
+		}
+		ListViewPlusTrace.end();
+
+		if (mFrameListener != null) {
+			mFrameListener.onSpringFrame(this, interval, System.nanoTime()
+					- start);
+		}
+	}
+
+	private void step(float seconds) {
+		float damping = 2f * mDampingRatio * (float) Math.sqrt(mStiffness);
+		while (seconds > 0) {
+			float dt = Math.min(seconds, MAX_STEP_SECONDS);
+			float force = -mStiffness * (mValue - mEndValue) - damping
+					* mVelocity;
+			// semi-implicit euler
+			mVelocity += force * dt;
+			mValue += mVelocity * dt;
+			seconds -= dt;
+		}
+	}
+
+	private interface FrameScheduler {
+		public void schedule();
+
+		public void cancel();
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private static class ChoreographerScheduler implements FrameScheduler,
+			Choreographer.FrameCallback {
+		private final SpringAnimator mSpring;
+		private final Choreographer mChoreographer;
+
+		ChoreographerScheduler(SpringAnimator spring) {
+			mSpring = spring;
+			mChoreographer = Choreographer.getInstance();
+		}
+
+		@Override
+		public void schedule() {
+			mChoreographer.postFrameCallback(this);
+		}
+
+		@Override
+		public void cancel() {
+			mChoreographer.removeFrameCallback(this);
+		}
+
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			mSpring.doFrame(frameTimeNanos);
+		}
+	}
+
+	private static class HandlerScheduler implements FrameScheduler, Runnable {
+		private final static long FRAME_DELAY = 16;
+
+		private final SpringAnimator mSpring;
+		private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+		HandlerScheduler(SpringAnimator spring) {
+			mSpring = spring;
+		}
+
+		@Override
+		public void schedule() {
+			mHandler.postDelayed(this, FRAME_DELAY);
+		}
+
+		@Override
+		public void cancel() {
+			mHandler.removeCallbacks(this);
+		}
+
+		@Override
+		public void run() {
+			mSpring.doFrame(System.nanoTime());
+		}
+	}
+}
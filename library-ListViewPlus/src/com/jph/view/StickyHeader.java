@@ -0,0 +1,221 @@
+package com.jph.view;
+
+import android.database.DataSetObserver;
+import android.graphics.Canvas;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * 顶部固定的分组标题
+ *
+ * <p>
+ * Keeps the {@link SectionIndex} of a {@link StickyHeaderAdapter} up to
+ * date and draws the header of the section at the top of the list over the
+ * rows. On every scroll the section is looked up by binary search; the
+ * header view is bound and measured again only when the section changes,
+ * and the list is invalidated only when the section or the offset by which
+ * the next section pushes the header up changes. Nothing is allocated per
+ * scroll frame.
+ *
+ * @author JPH
+ */
+class StickyHeader {
+	private final ListViewPlus mListView;
+	private final SectionIndex mIndex = new SectionIndex();
+	private StickyHeaderAdapter mAdapter;
+
+	private View mView;
+	// -1 when no header is shown
+	private int mSection = -1;
+	private int mOffset;
+	private int mMeasuredWidth = -1;
+
+	// items a load more is appending, 0 when the next change is not known
+	// to be an append
+	private int mAppendCount;
+	private boolean mRegistered;
+
+	private final DataSetObserver mObserver = new DataSetObserver() {
+		@Override
+		public void onChanged() {
+			reindex();
+		}
+
+		@Override
+		public void onInvalidated() {
+			mIndex.clear();
+			reindex();
+		}
+	};
+
+	StickyHeader(ListViewPlus listView) {
+		mListView = listView;
+	}
+
+	SectionIndex getIndex() {
+		return mIndex;
+	}
+
+	/**
+	 * @param adapter
+	 *            null to stop
+	 */
+	void setAdapter(StickyHeaderAdapter adapter) {
+		if (adapter == mAdapter)
+			return;
+		unregister();
+		mAdapter = adapter;
+		mIndex.clear();
+		mView = null;
+		mSection = -1;
+		if (adapter != null) {
+			adapter.registerDataSetObserver(mObserver);
+			mRegistered = true;
+			reindex();
+		}
+		mListView.invalidate();
+	}
+
+	/**
+	 * Listen to the adapter again after {@link #detach()}; the data may have
+	 * changed in between, so the index is built again.
+	 */
+	void attach() {
+		if (mAdapter == null || mRegistered)
+			return;
+		mAdapter.registerDataSetObserver(mObserver);
+		mRegistered = true;
+		mIndex.clear();
+		reindex();
+	}
+
+	/**
+	 * Stop listening to the adapter, so an adapter that outlives the list
+	 * does not keep it.
+	 */
+	void detach() {
+		unregister();
+	}
+
+	private void unregister() {
+		if (mRegistered) {
+			mAdapter.unregisterDataSetObserver(mObserver);
+			mRegistered = false;
+		}
+	}
+
+	/**
+	 * Announce that the next data set change appends {@code count} items
+	 * and leaves the others alone, so only those are scanned.
+	 * 
+	 * @param count
+	 *            0 when the change is over
+	 */
+	void setAppendCount(int count) {
+		mAppendCount = count;
+	}
+
+	private void reindex() {
+		StickyHeaderAdapter adapter = mAdapter;
+		int count = adapter.getCount();
+		int indexed = mIndex.getItemCount();
+		// only an announced append that grew the list by exactly its items
+		// keeps the index, any other change may have moved items between
+		// sections.
+		boolean appended = mAppendCount > 0 && indexed > 0
+				&& count == indexed + mAppendCount;
+		mAppendCount = 0;
+		if (!appended) {
+			mIndex.clear();
+		}
+		mIndex.append(adapter, count);
+		// the content of the pinned section may have changed
+		mSection = -1;
+		update();
+	}
+
+	/**
+	 * Follow the first visible row, called from {@code onScroll}.
+	 */
+	void update() {
+		if (mAdapter == null)
+			return;
+		ListViewPlus listView = mListView;
+		int firstPosition = listView.getFirstVisiblePosition();
+		int firstVisibleItem = firstPosition;
+		int headerCount = listView.getHeaderViewsCount();
+		// skip rows that show nothing, like the collapsed pull header
+		int paddingTop = listView.getPaddingTop();
+		for (int i = 0, n = listView.getChildCount(); i < n - 1; i++) {
+			if (listView.getChildAt(i).getBottom() > paddingTop)
+				break;
+			firstVisibleItem++;
+		}
+		int section = mIndex.getSectionForPosition(firstVisibleItem
+				- headerCount);
+		if (section < 0) {
+			if (mSection >= 0) {
+				mSection = -1;
+				listView.invalidate();
+			}
+			return;
+		}
+
+		boolean changed = false;
+		if (section != mSection) {
+			mView = mAdapter.getHeaderView(mIndex.getSectionStart(section),
+					mView, listView);
+			mSection = section;
+			mMeasuredWidth = -1;
+			measure();
+			changed = true;
+		}
+
+		// the next section's first row pushes the header up
+		int offset = 0;
+		if (section + 1 < mIndex.getSectionCount()) {
+			int childIndex = mIndex.getSectionStart(section + 1)
+					+ headerCount - firstPosition;
+			if (childIndex < listView.getChildCount()) {
+				int top = listView.getChildAt(childIndex).getTop()
+						- listView.getPaddingTop();
+				offset = Math.min(0, top - mView.getMeasuredHeight());
+			}
+		}
+		if (offset != mOffset) {
+			mOffset = offset;
+			changed = true;
+		}
+		if (changed) {
+			listView.invalidate();
+		}
+	}
+
+	void draw(Canvas canvas) {
+		if (mSection < 0 || mView == null)
+			return;
+		measure();
+		int saveCount = canvas.save();
+		canvas.translate(mListView.getPaddingLeft(),
+				mListView.getPaddingTop() + mOffset);
+		mView.draw(canvas);
+		canvas.restoreToCount(saveCount);
+	}
+
+	private void measure() {
+		int width = mListView.getWidth() - mListView.getPaddingLeft()
+				- mListView.getPaddingRight();
+		if (width <= 0 || width == mMeasuredWidth)
+			return;
+		mMeasuredWidth = width;
+		ViewGroup.LayoutParams lp = mView.getLayoutParams();
+		int heightSpec = lp != null && lp.height > 0 ? View.MeasureSpec
+				.makeMeasureSpec(lp.height, View.MeasureSpec.EXACTLY)
+				: View.MeasureSpec.makeMeasureSpec(0,
+						View.MeasureSpec.UNSPECIFIED);
+		mView.measure(
+				View.MeasureSpec.makeMeasureSpec(width,
+						View.MeasureSpec.EXACTLY), heightSpec);
+		mView.layout(0, 0, mView.getMeasuredWidth(), mView.getMeasuredHeight());
+	}
+}
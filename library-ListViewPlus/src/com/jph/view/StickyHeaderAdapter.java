@@ -0,0 +1,37 @@
+package com.jph.view;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ListAdapter;
+
+/**
+ * 分组列表的Adapter，用于顶部固定的分组标题
+ *
+ * <p>
+ * Items of a section are adjacent, e.g. grouped by date. The sections are
+ * found once per data set change by asking {@link #isSectionStart(int)}
+ * for the new positions only, see {@link SectionIndex}; scrolling never
+ * asks the adapter again until the pinned section changes. A page appended
+ * by {@link PagedLoader}'s load more only scans the new items; any other
+ * change scans them all.
+ *
+ * @author JPH
+ */
+public interface StickyHeaderAdapter extends ListAdapter {
+	/**
+	 * @return true if the item belongs to another section than the item
+	 *         before it. Not called for position 0, which always starts a
+	 *         section.
+	 */
+	public boolean isSectionStart(int position);
+
+	/**
+	 * Bind the pinned header of the section starting at
+	 * {@code sectionStart}.
+	 * 
+	 * @param convertView
+	 *            the previous pinned header to reuse, or null
+	 */
+	public View getHeaderView(int sectionStart, View convertView,
+			ViewGroup parent);
+}
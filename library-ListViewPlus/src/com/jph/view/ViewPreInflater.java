@@ -0,0 +1,163 @@
+package com.jph.view;
+
+import java.util.ArrayList;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.SparseArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * 条目View的预加载池
+ *
+ * <p>
+ * Inflates convert views ahead of time, one view per idle pass of the main
+ * thread, so the first fling after a refresh does not have to inflate while
+ * the ListView recycler fills up. Adapters call
+ * {@link #obtain(int, ViewGroup)} instead of inflating when they get no
+ * convert view. One pre-inflater can be shared by several lists with the
+ * same rows, see {@link ListViewPlusPool}. Must be used on the main thread.
+ *
+ * @author JPH
+ */
+public class ViewPreInflater {
+	private final LayoutInflater mInflater;
+	private final SparseArray<Pool> mPools = new SparseArray<Pool>();
+	// the lists using it, views are inflated for the first one
+	private final ArrayList<ViewGroup> mParents = new ArrayList<ViewGroup>(1);
+	private boolean mWarming;
+
+	private int mHits;
+	private int mMisses;
+
+	private final MessageQueue.IdleHandler mIdleHandler = new MessageQueue.IdleHandler() {
+		@Override
+		public boolean queueIdle() {
+			// one view per idle pass keeps every pass short.
+			mWarming = inflateOne();
+			return mWarming;
+		}
+	};
+
+	private static class Pool {
+		final int mLayout;
+		final int mTarget;
+		final ArrayList<View> mViews;
+
+		Pool(int layout, int target) {
+			mLayout = layout;
+			mTarget = target;
+			mViews = new ArrayList<View>(target);
+		}
+	}
+
+	public ViewPreInflater(Context context) {
+		mInflater = LayoutInflater.from(context);
+	}
+
+	/**
+	 * Keep up to {@code count} views of {@code layout} ready for
+	 * {@code viewType}, usually about a screen of rows.
+	 */
+	public void register(int viewType, int layout, int count) {
+		mPools.put(viewType, new Pool(layout, count));
+	}
+
+	public boolean isRegistered(int viewType) {
+		return mPools.get(viewType) != null;
+	}
+
+	/**
+	 * Add a parent the views are inflated for, so their layout params are
+	 * resolved correctly. Called by {@link ListViewPlus#setPreInflater}.
+	 */
+	void attach(ViewGroup parent) {
+		if (!mParents.contains(parent)) {
+			mParents.add(parent);
+		}
+	}
+
+	/**
+	 * @return true if no parent is left
+	 */
+	boolean detach(ViewGroup parent) {
+		mParents.remove(parent);
+		return mParents.isEmpty();
+	}
+
+	/**
+	 * Fill the pools during the coming idle passes of the main thread.
+	 */
+	public void warm() {
+		if (mWarming || mParents.isEmpty())
+			return;
+		mWarming = true;
+		Looper.myQueue().addIdleHandler(mIdleHandler);
+	}
+
+	/**
+	 * Stop warming and drop the pooled views.
+	 */
+	public void clear() {
+		if (mWarming) {
+			Looper.myQueue().removeIdleHandler(mIdleHandler);
+			mWarming = false;
+		}
+		for (int i = 0, n = mPools.size(); i < n; i++) {
+			mPools.valueAt(i).mViews.clear();
+		}
+	}
+
+	/**
+	 * @return a pre-inflated view for {@code viewType}, or a freshly
+	 *         inflated one if the pool is empty
+	 */
+	public View obtain(int viewType, ViewGroup parent) {
+		Pool pool = mPools.get(viewType);
+		if (pool == null) {
+			throw new IllegalArgumentException("view type " + viewType
+					+ " is not registered");
+		}
+		int size = pool.mViews.size();
+		if (size > 0) {
+			mHits++;
+			return pool.mViews.remove(size - 1);
+		}
+		mMisses++;
+		return mInflater.inflate(pool.mLayout, parent, false);
+	}
+
+	public int getHitCount() {
+		return mHits;
+	}
+
+	public int getMissCount() {
+		return mMisses;
+	}
+
+	public void resetStats() {
+		mHits = 0;
+		mMisses = 0;
+	}
+
+	/**
+	 * @return true if more views are missing
+	 */
+	private boolean inflateOne() {
+		if (mParents.isEmpty())
+			return false;
+		ViewGroup parent = mParents.get(0);
+		for (int i = 0, n = mPools.size(); i < n; i++) {
+			Pool pool = mPools.valueAt(i);
+			if (pool.mViews.size() < pool.mTarget) {
+				pool.mViews.add(mInflater.inflate(pool.mLayout, parent,
+						false));
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,220 @@
+package com.jph.view;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 无限列表的分页存储，只保留可见区域附近的页
+ *
+ * <p>
+ * Items are appended page by page. Pages further than the resident distance
+ * from the visible pages are evicted; their sizes are kept, so
+ * {@link #getCount()} and every adapter position stay stable. When an evicted
+ * page comes back into view {@link #get(int)} returns null for its items and
+ * the page is requested again through the {@link PageReloader}; the visible
+ * rows of the page are bound again once {@link #setPage(int, int, List)}
+ * brings it back. Every reload carries a generation that {@link #clear()}
+ * moves on, so a page requested before it is dropped when it arrives. All
+ * methods must be called on the main thread.
+ *
+ * <p>
+ * Attach it with {@link ListViewPlus#setPageStore(WindowedPageStore)}, and
+ * back the adapter with {@link #getCount()} and {@link #get(int)}.
+ *
+ * @author JPH
+ */
+public class WindowedPageStore<T> extends PageWindow {
+	/**
+	 * Fetches an evicted page again, asynchronously. The result must be
+	 * passed to {@link WindowedPageStore#setPage(int, int, List)}, a failure
+	 * to {@link WindowedPageStore#onPageFailed(int, int)}, both with the same
+	 * generation.
+	 */
+	public interface PageReloader {
+		/**
+		 * @param generation
+		 *            to pass back with the result
+		 * @param page
+		 *            index of the page
+		 */
+		public void reloadPage(int generation, int page);
+	}
+
+	private final int mResidentPages;
+	private final PageReloader mReloader;
+	private ListViewPlus mListView;
+
+	// null for evicted pages
+	private final ArrayList<List<T>> mPages = new ArrayList<List<T>>();
+	// first position of every page, plus the total count at the end
+	private int[] mPageStarts = new int[16];
+	private boolean[] mReloading = new boolean[16];
+	// moved on by clear(), older reloads are dropped
+	private int mGeneration;
+
+	private int mFirstVisiblePage = -1;
+	private int mLastVisiblePage = -1;
+
+	/**
+	 * @param residentPages
+	 *            pages kept on each side of the visible pages
+	 * @param reloader
+	 *            fetches evicted pages again
+	 */
+	public WindowedPageStore(int residentPages, PageReloader reloader) {
+		mResidentPages = residentPages;
+		mReloader = reloader;
+	}
+
+	@Override
+	void attach(ListViewPlus listView) {
+		mListView = listView;
+	}
+
+	public int getCount() {
+		return mPageStarts[mPages.size()];
+	}
+
+	public int getPageCount() {
+		return mPages.size();
+	}
+
+	/**
+	 * @return the item, or null if its page is evicted and being reloaded
+	 */
+	public T get(int position) {
+		int page = getPageForPosition(position);
+		List<T> items = mPages.get(page);
+		if (items == null) {
+			requestReload(page);
+			return null;
+		}
+		return items.get(position - mPageStarts[page]);
+	}
+
+	public boolean isResident(int page) {
+		return mPages.get(page) != null;
+	}
+
+	public int getPageForPosition(int position) {
+		// last page whose start is <= position
+		int index = Arrays.binarySearch(mPageStarts, 0, mPages.size(),
+				position);
+		if (index < 0) {
+			index = -index - 2;
+		} else {
+			// skip empty pages sharing the same start
+			while (index + 1 < mPages.size()
+					&& mPageStarts[index + 1] == position) {
+				index++;
+			}
+		}
+		return index;
+	}
+
+	public int getPageStart(int page) {
+		return mPageStarts[page];
+	}
+
+	/**
+	 * Append the next page, e.g. from load more.
+	 */
+	public void appendPage(List<T> items) {
+		int page = mPages.size();
+		ensureCapacity(page + 2);
+		mPages.add(items);
+		mPageStarts[page + 1] = mPageStarts[page] + items.size();
+		mReloading[page] = false;
+	}
+
+	/**
+	 * Put a reloaded page back. It must have the size it had when it was
+	 * appended. Ignored if it was requested before a {@link #clear()}, or if
+	 * the page has scrolled out of the resident window in the meantime.
+	 */
+	public void setPage(int generation, int page, List<T> items) {
+		if (generation != mGeneration || page < 0 || page >= mPages.size())
+			return;
+		if (items.size() != mPageStarts[page + 1] - mPageStarts[page]) {
+			throw new IllegalArgumentException("page " + page
+					+ " changed size");
+		}
+		mReloading[page] = false;
+		if (mPages.get(page) != null || !isInWindow(page))
+			return;
+		mPages.set(page, items);
+		if (mListView != null) {
+			mListView.rebindRange(mPageStarts[page], mPageStarts[page + 1]);
+		}
+	}
+
+	/**
+	 * A reload failed; the page is requested again when it comes back into
+	 * the window, or when one of its items is read.
+	 */
+	public void onPageFailed(int generation, int page) {
+		if (generation == mGeneration && page < mPages.size()) {
+			mReloading[page] = false;
+		}
+	}
+
+	/**
+	 * Drop everything, e.g. before a refresh. Reloads in flight are ignored
+	 * when they arrive.
+	 */
+	public void clear() {
+		mGeneration++;
+		mPages.clear();
+		Arrays.fill(mReloading, false);
+		mFirstVisiblePage = -1;
+		mLastVisiblePage = -1;
+	}
+
+	@Override
+	void onVisibleRangeChanged(int firstPosition, int lastPosition) {
+		if (mPages.isEmpty() || lastPosition < firstPosition)
+			return;
+		int firstPage = getPageForPosition(firstPosition);
+		int lastPage = getPageForPosition(lastPosition);
+		if (firstPage == mFirstVisiblePage && lastPage == mLastVisiblePage)
+			return;
+		mFirstVisiblePage = firstPage;
+		mLastVisiblePage = lastPage;
+
+		for (int page = 0, n = mPages.size(); page < n; page++) {
+			if (!isInWindow(page)) {
+				mPages.set(page, null);
+			} else if (mPages.get(page) == null) {
+				// coming back towards it, fetch before it is visible.
+				requestReload(page);
+			}
+		}
+	}
+
+	private boolean isInWindow(int page) {
+		if (mFirstVisiblePage < 0)
+			return true;
+		return page >= mFirstVisiblePage - mResidentPages
+				&& page <= mLastVisiblePage + mResidentPages;
+	}
+
+	private void requestReload(int page) {
+		if (mReloading[page])
+			return;
+		mReloading[page] = true;
+		mReloader.reloadPage(mGeneration, page);
+	}
+
+	private void ensureCapacity(int size) {
+		if (size > mPageStarts.length) {
+			int length = Math.max(size, mPageStarts.length * 2);
+			int[] starts = new int[length];
+			System.arraycopy(mPageStarts, 0, starts, 0, mPageStarts.length);
+			mPageStarts = starts;
+			boolean[] reloading = new boolean[length];
+			System.arraycopy(mReloading, 0, reloading, 0, mReloading.length);
+			mReloading = reloading;
+		}
+	}
+}
@@ -1,19 +1,24 @@
 package com.jph.sample.activity;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
 import android.app.Activity;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Message;
+import android.text.format.DateUtils;
+import android.util.Log;
+import android.widget.Toast;
 
-import com.jph.lp.R;
+import com.jph.sample.R;
 import com.jph.sample.adapter.ListViewAdapter;
-import com.jph.sample.utils.Utils;
+import com.jph.sample.model.Item;
 import com.jph.view.ListViewPlus;
-import com.jph.view.ListViewPlus.ListViewPlusListener;
+import com.jph.view.PageDiskCache;
+import com.jph.view.PagedDataSource;
+import com.jph.view.PagedLoader;
+import com.jph.view.ViewPreInflater;
 
 /**
  * ListViewPlus应用实例
@@ -21,101 +26,118 @@ import com.jph.view.ListViewPlus.ListViewPlusListener;
  * @author JPH
  * @date 2015-3-10 下午12:35:13
  */
-public class MainActivity extends Activity implements ListViewPlusListener {
+public class MainActivity extends Activity implements
+		PagedLoader.PrependCallback<Item> {
+	private final static String TAG = "MainActivity";
 	private ListViewPlus lvPlus;
 	private ListViewAdapter mAdapter;
-	private boolean isFirstLoad;
-	private ArrayList<String> items = new ArrayList<String>();
-	private Handler handler = new Handler() {
-		public void handleMessage(Message msg) {
-			List<String> result = (List<String>) msg.obj;
-			switch (msg.what) {
-			case ListViewPlus.REFRESH:
-				items.clear();
-				items.addAll(result);
-				onLoadComplete();
-				break;
-			case ListViewPlus.LOAD:
-				items.addAll(result);
-				onLoadComplete();
-				break;
-			}
-			mAdapter.notifyDataSetChanged();
-		};
-	};
+	private PagedLoader<Integer, Item> mLoader;
+	private ArrayList<Item> items = new ArrayList<Item>();
 
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
 		setContentView(R.layout.main);
-		isFirstLoad=true;
 		lvPlus = (ListViewPlus) findViewById(R.id.lvPlus);
 		lvPlus.setRefreshEnable(true);
 		lvPlus.setLoadEnable(true);
 		lvPlus.setAutoLoadEnable(true);
-		initData();
+		lvPlus.setPrefetchScreens(1);
+		lvPlus.setLayoutFreePullEnable(true);
+		// 上次刷新时间由ListViewPlus保存，并显示为“N分钟前”
+		lvPlus.setRefreshTimeKey("main");
+		ViewPreInflater preInflater = new ViewPreInflater(this);
+		preInflater.register(0, R.layout.listview_item, 12);
+		lvPlus.setPreInflater(preInflater);
 		mAdapter = new ListViewAdapter(this, items);
 		lvPlus.setAdapter(mAdapter);
-		lvPlus.setListViewPlusListener(this);
+		mLoader = new PagedLoader<Integer, Item>(lvPlus,
+				new SampleDataSource(), this);
+		// 先显示上次缓存的数据，刷新完成后再替换
+		mLoader.setDiskCache(new PageDiskCache<Integer, Item>(new File(
+				getCacheDir(), "pages"), 512 * 1024, DateUtils.DAY_IN_MILLIS,
+				PageDiskCache.INTEGER, Item.CODEC), "main");
+		if (savedInstanceState == null) {
+			// 重建时由ListViewPlus恢复滚动位置并加载所在的页
+			initData();
+		}
 	}
 
 	@Override
-	public void onWindowFocusChanged(boolean hasFocus) {
-		super.onWindowFocusChanged(hasFocus);
-		if (hasFocus&&isFirstLoad) {
-			lvPlus.autoRefresh();
-			isFirstLoad=false;
+	protected void onRestoreInstanceState(Bundle savedInstanceState) {
+		super.onRestoreInstanceState(savedInstanceState);
+		if (!mLoader.isRestoring()) {
+			// 第一页加载完成前就重建了，没有可以恢复的页
+			initData();
 		}
 	}
 
+	@Override
+	protected void onDestroy() {
+		mLoader.release();
+		super.onDestroy();
+	}
+
 	/**
 	 * 初始化数据
 	 */
 	private void initData() {
-		loadData(ListViewPlus.REFRESH);
+		// 头部高度不依赖布局，可以直接显示刷新状态
+		lvPlus.autoRefresh();
 	}
 
-	private void onLoadComplete() {
-		lvPlus.stopRefresh();
-		lvPlus.stopLoadMore();
-		lvPlus.setRefreshTime(Utils.getCurrentTime());
+	@Override
+	public void onPageLoaded(boolean refresh, List<Item> result) {
+		if (refresh) {
+			// 只重新绑定内容变化的条目
+			lvPlus.submitSnapshot(result);
+			return;
+		}
+		items.addAll(result);
+		mAdapter.notifyDataSetChanged();
 	}
 
 	@Override
-	public void onRefresh() {
-		loadData(ListViewPlus.REFRESH);
+	public void onPagePrepended(List<Item> result) {
+		items.addAll(0, result);
+		// 屏幕上的条目保持原来的View，不重新绑定
+		mAdapter.notifyItemsPrepended(result.size());
 	}
 
 	@Override
-	public void onLoadMore() {
-		loadData(ListViewPlus.LOAD);
+	public void onLoadFailed(boolean refresh, Exception e) {
+		Log.w(TAG, refresh ? "refresh failed" : "load more failed", e);
+		// 列表为空时下拉即可重试
+		Toast.makeText(this,
+				refresh ? R.string.refresh_failed : R.string.load_more_failed,
+				Toast.LENGTH_SHORT).show();
 	}
 
-	private void loadData(final int what) {
-		// 这里模拟从服务器获取数据
-		new Thread(new Runnable() {
-			@Override
-			public void run() {
-				try {
-					Thread.sleep(2000);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-				Message msg = handler.obtainMessage();
-				msg.what = what;
-				msg.obj = getData();
-				handler.sendMessage(msg);
-			}
-		}).start();
+	/**
+	 * 这里模拟从服务器获取数据，在PagedLoader的后台线程中执行
+	 */
+	private static class SampleDataSource extends
+			PagedDataSource<Integer, Item> {
+		@Override
+		public Page<Integer, Item> loadInitial() throws Exception {
+			return loadAfter(0);
+		}
+
+		@Override
+		public Page<Integer, Item> loadAfter(Integer page) throws Exception {
+			Thread.sleep(2000);
+			return new Page<Integer, Item>(getData(page), page + 1);
+		}
 	}
 
-	// 测试数据
-	public List<String> getData() {
-		List<String> result = new ArrayList<String>();
+	// 测试数据，同一页的条目ID不变，内容随机
+	public static List<Item> getData(int page) {
+		List<Item> result = new ArrayList<Item>();
 		Random random = new Random();
 		for (int i = 0; i < 10; i++) {
-			long l = random.nextInt(10000);
-			result.add("当前条目的ID：" + l);
+			long id = page * 10L + i;
+			result.add(new Item(id, "当前条目的ID：" + id + "  "
+					+ random.nextInt(10000)));
 		}
 		return result;
 	}
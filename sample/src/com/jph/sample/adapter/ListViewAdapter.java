@@ -3,60 +3,49 @@ package com.jph.sample.adapter;
 import java.util.List;
 
 import android.content.Context;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.BaseAdapter;
 import android.widget.TextView;
 
 import com.jph.lp.R;
+import com.jph.sample.model.Item;
+import com.jph.view.ListViewPlusAdapter;
 /** 
  * 适配器
  * @author JPH
  * @date 2015-3-10 下午12:36:59
  */
-public class ListViewAdapter extends BaseAdapter {
+public class ListViewAdapter extends
+		ListViewPlusAdapter<Item, ListViewAdapter.ViewHolder> {
 
-	private ViewHolder holder;
-	private List<String> list;
-	private Context context;
-
-	public ListViewAdapter(Context context, List<String> list) {
-		this.list = list;
-		this.context = context;
+	public ListViewAdapter(Context context, List<Item> list) {
+		super(context, list);
 	}
 
 	@Override
-	public int getCount() {
-		return list.size();
+	protected ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+		return new ViewHolder(inflate(R.layout.listview_item, viewType,
+				parent));
 	}
 
 	@Override
-	public Object getItem(int position) {
-		return null;
+	protected void onBindViewHolder(ViewHolder holder, Item item,
+			int position) {
+		holder.text.setText(item.text);
 	}
 
 	@Override
-	public long getItemId(int position) {
-		return 0;
+	public long getItemKey(Item item) {
+		return item.id;
 	}
 
-	@Override
-	public View getView(int position, View convertView, ViewGroup parent) {
-		if (convertView == null) {
-			holder = new ViewHolder();
-			convertView = LayoutInflater.from(context).inflate(
-					R.layout.listview_item, null);
-			holder.text = (TextView) convertView.findViewById(R.id.text);
-			convertView.setTag(holder);
-		} else {
-			holder = (ViewHolder) convertView.getTag();
+	static class ViewHolder extends ListViewPlusAdapter.ViewHolder {
+		final TextView text;
+
+		ViewHolder(View itemView) {
+			super(itemView);
+			text = (TextView) itemView.findViewById(R.id.text);
 		}
-		holder.text.setText(list.get(position));
-		return convertView;
-	}
-	private static class ViewHolder {
-		TextView text;
 	}
 
 }
@@ -0,0 +1,58 @@
+package com.jph.sample.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import com.jph.view.PageDiskCache;
+
+/**
+ * 列表条目
+ * 
+ * <p>
+ * The id comes from the server and is unique across the list, so it can be
+ * the stable id of the adapter.
+ * 
+ * @author JPH
+ */
+public class Item {
+	public final long id;
+	public final String text;
+
+	public final static PageDiskCache.Codec<Item> CODEC = new PageDiskCache.Codec<Item>() {
+		@Override
+		public void write(DataOutput out, Item value) throws IOException {
+			out.writeLong(value.id);
+			PageDiskCache.STRING.write(out, value.text);
+		}
+
+		@Override
+		public Item read(DataInput in) throws IOException {
+			long id = in.readLong();
+			return new Item(id, PageDiskCache.STRING.read(in));
+		}
+	};
+
+	public Item(long id, String text) {
+		this.id = id;
+		this.text = text;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof Item))
+			return false;
+		Item other = (Item) o;
+		return id == other.id && text.equals(other.text);
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (id ^ (id >>> 32)) * 31 + text.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+}
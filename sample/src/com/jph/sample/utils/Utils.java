@@ -2,6 +2,7 @@ package com.jph.sample.utils;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Locale;
 
 /** 
@@ -10,12 +11,16 @@ import java.util.Locale;
  * @date 2015-3-10 下午12:38:00
  */
 public class Utils {
+	// SimpleDateFormat is expensive to build, keep one per pattern
+	private static final HashMap<String, SimpleDateFormat> FORMATS = new HashMap<String, SimpleDateFormat>();
 
-	public static String getCurrentTime(String format) {
-		Date date = new Date();
-		SimpleDateFormat sdf = new SimpleDateFormat(format, Locale.getDefault());
-		String currentTime = sdf.format(date);
-		return currentTime;
+	public static synchronized String getCurrentTime(String format) {
+		SimpleDateFormat sdf = FORMATS.get(format);
+		if (sdf == null) {
+			sdf = new SimpleDateFormat(format, Locale.getDefault());
+			FORMATS.put(format, sdf);
+		}
+		return sdf.format(new Date());
 	}
 
 	public static String getCurrentTime() {